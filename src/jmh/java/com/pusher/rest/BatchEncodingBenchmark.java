@@ -0,0 +1,67 @@
+package com.pusher.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pusher.rest.data.Event;
+
+/**
+ * Sequential against parallel encoding of a batch of 10 events with 10 KB payloads, to plain and
+ * to encrypted channels. Reported as the average time to build one batch request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchEncodingBenchmark {
+
+    private static final int BATCH_SIZE = 10;
+    private static final int PAYLOAD_SIZE = 10240;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private NoHttpPusher pusher;
+    private List<Event> batch;
+    private List<Event> encryptedBatch;
+
+    @Setup
+    public void setup() {
+        pusher = new NoHttpPusher(BenchmarkData.APP_ID, BenchmarkData.KEY, BenchmarkData.SECRET, BenchmarkData.MASTER_KEY);
+        pusher.setParallelBatchEncoding(parallel);
+
+        final Map<String, Object> payload = BenchmarkData.payload(PAYLOAD_SIZE);
+        batch = new ArrayList<>();
+        encryptedBatch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new Event("channel-" + i, "my-event", payload));
+            encryptedBatch.add(new Event("private-encrypted-channel-" + i, "my-event", payload));
+        }
+    }
+
+    @Benchmark
+    public Object batch() {
+        return pusher.trigger(batch);
+    }
+
+    @Benchmark
+    public Object encryptedBatch() {
+        return pusher.trigger(encryptedBatch);
+    }
+}
@@ -0,0 +1,37 @@
+package com.pusher.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared fixtures for benchmarks.
+ */
+final class BenchmarkData {
+
+    static final String APP_ID = "00001";
+    static final String KEY    = "157a2f3df564323a4a73";
+    static final String SECRET = "3457a88be87f890dcd98";
+    static final String MASTER_KEY = "VGhlIDMyIGNoYXJzIGxvbmcgZW5jcnlwdGlvbiBrZXk=";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size approximate size of the payload once serialised, in bytes
+     * @return a map payload with string and numeric fields
+     */
+    static Map<String, Object> payload(final int size) {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", 12345);
+        payload.put("type", "message");
+
+        final StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append("The quick brown fox says \"hello\" to the lazy dog.\n");
+        }
+        text.setLength(size);
+        payload.put("text", text.toString());
+
+        return payload;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pusher.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pusher.rest.crypto.CryptoUtil;
+import com.pusher.rest.crypto.nacl.SecretBox;
+import com.pusher.rest.data.EncryptedMessage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CryptoBenchmark {
+
+    @Param({"100", "10240"})
+    public int payloadSize;
+
+    private final CryptoUtil crypto = new CryptoUtil(BenchmarkData.MASTER_KEY);
+    private final byte[] key = Base64.getDecoder().decode(BenchmarkData.MASTER_KEY);
+    private byte[] message;
+
+    @Setup
+    public void setup() {
+        message = BenchmarkData.payload(payloadSize).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public EncryptedMessage encrypt() {
+        return crypto.encrypt("private-encrypted-channel", message);
+    }
+
+    @Benchmark
+    public Map<String, byte[]> secretBox() {
+        return SecretBox.box(key, message);
+    }
+
+    @Benchmark
+    public String sharedSecret() {
+        return crypto.generateBase64EncodedSharedSecret("private-encrypted-channel");
+    }
+}
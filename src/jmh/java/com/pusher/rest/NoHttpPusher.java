@@ -0,0 +1,32 @@
+package com.pusher.rest;
+
+import java.net.URI;
+
+/**
+ * Stub client for benchmarks, which returns the request it would have made instead of making it.
+ */
+public class NoHttpPusher extends PusherAbstract<Object> {
+
+    public NoHttpPusher(final String appId, final String key, final String secret) {
+        super(appId, key, secret);
+    }
+
+    public NoHttpPusher(final String appId, final String key, final String secret, final String encryptionMasterKeyBase64) {
+        super(appId, key, secret, encryptionMasterKeyBase64);
+    }
+
+    @Override
+    protected Object doGet(final URI uri) {
+        return uri;
+    }
+
+    @Override
+    protected Object doPost(final URI uri, final String body) {
+        return body;
+    }
+
+    @Override
+    protected Object doPost(final URI uri, final byte[] body) {
+        return body;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pusher.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pusher.rest.data.PresenceUser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PresenceAuthBenchmark {
+
+    private static final String SOCKET_ID = "1234.5678";
+
+    @Param({ "1", "10", "50" })
+    private int channelCount;
+
+    private final NoHttpPusher pusher = new NoHttpPusher(BenchmarkData.APP_ID, BenchmarkData.KEY, BenchmarkData.SECRET);
+    private final PresenceUser user = new PresenceUser("user-1", Collections.singletonMap("name", "Phil Leggetter"));
+
+    private List<String> channels;
+
+    @Setup
+    public void setUp() {
+        channels = new ArrayList<String>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            channels.add("presence-room-" + i);
+        }
+    }
+
+    @Benchmark
+    public void perChannel(final Blackhole blackhole) {
+        for (final String channel : channels) {
+            blackhole.consume(pusher.authenticate(SOCKET_ID, channel, user));
+        }
+    }
+
+    @Benchmark
+    public String bulk() {
+        return pusher.authenticate(SOCKET_ID, channels, user);
+    }
+}
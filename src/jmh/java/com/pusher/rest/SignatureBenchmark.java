@@ -0,0 +1,51 @@
+package com.pusher.rest;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SignatureBenchmark {
+
+    private static final String PATH = "/apps/" + BenchmarkData.APP_ID + "/events";
+    private static final String BODY = "{\"name\":\"my-event\",\"channels\":[\"my-channel\"],\"data\":\"{\\\"message\\\":\\\"hello world\\\"}\"}";
+    private static final Map<String, String> QUERY = Collections.singletonMap("info", "user_count");
+
+    private final HmacSigner signer = new HmacSigner(BenchmarkData.SECRET);
+
+    @Benchmark
+    public String sign() {
+        return SignatureUtil.sign(BODY, BenchmarkData.SECRET);
+    }
+
+    @Benchmark
+    public String signWithSigner() {
+        return signer.sign(BODY);
+    }
+
+    @Benchmark
+    public URI postUri() {
+        return SignatureUtil.uri("POST", "http", "api.pusherapp.com", PATH, BODY, BenchmarkData.KEY, signer, Collections.<String, String>emptyMap());
+    }
+
+    @Benchmark
+    public URI getUriWithParameters() {
+        return SignatureUtil.uri("GET", "http", "api.pusherapp.com", "/apps/" + BenchmarkData.APP_ID + "/channels/presence-room", (byte[])null, BenchmarkData.KEY, signer, QUERY);
+    }
+}
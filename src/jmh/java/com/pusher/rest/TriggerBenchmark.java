@@ -0,0 +1,87 @@
+package com.pusher.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.PresenceUser;
+
+/**
+ * Request building for trigger calls: validation, serialisation, body building and signing, with no IO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TriggerBenchmark {
+
+    @Param({"100", "10240"})
+    public int payloadSize;
+
+    private NoHttpPusher pusher;
+    private Map<String, Object> payload;
+    private List<String> channels;
+    private List<Event> batch;
+    private PresenceUser user;
+
+    @Setup
+    public void setup() {
+        pusher = new NoHttpPusher(BenchmarkData.APP_ID, BenchmarkData.KEY, BenchmarkData.SECRET, BenchmarkData.MASTER_KEY);
+        payload = BenchmarkData.payload(payloadSize);
+        channels = Arrays.asList("channel-1", "channel-2", "channel-3", "channel-4", "channel-5");
+
+        batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Event("channel-" + i, "my-event", payload));
+        }
+
+        user = new PresenceUser("user-1234", payload);
+    }
+
+    @Benchmark
+    public Object triggerSingleChannel() {
+        return pusher.trigger("my-channel", "my-event", payload);
+    }
+
+    @Benchmark
+    public Object triggerMultipleChannels() {
+        return pusher.trigger(channels, "my-event", payload);
+    }
+
+    @Benchmark
+    public Object triggerEncryptedChannel() {
+        return pusher.trigger("private-encrypted-channel", "my-event", payload);
+    }
+
+    @Benchmark
+    public Object triggerBatch() {
+        return pusher.trigger(batch);
+    }
+
+    @Benchmark
+    public String authenticatePrivate() {
+        return pusher.authenticate("1234.1234", "private-channel");
+    }
+
+    @Benchmark
+    public String authenticatePresence() {
+        return pusher.authenticate("1234.1234", "presence-channel", user);
+    }
+}
@@ -0,0 +1,62 @@
+package com.pusher.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pusher.rest.util.Prerequisites;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidationBenchmark {
+
+    private static final Pattern VALID_CHANNEL = Pattern.compile("\\A[-a-zA-Z0-9_=@,.;]+\\z");
+
+    @Param({"0", "1024"})
+    public int cacheSize;
+
+    private final List<String> channels = new ArrayList<String>();
+
+    @Setup
+    public void setup() {
+        Prerequisites.setValidChannelCacheSize(cacheSize);
+        for (int i = 0; i < 100; i++) {
+            channels.add("private-user-notifications-" + i);
+        }
+    }
+
+    @Benchmark
+    public void validChannels() {
+        Prerequisites.areValidChannels(channels);
+    }
+
+    @Benchmark
+    public void validChannelsByRegex(final Blackhole blackhole) {
+        for (final String channel : channels) {
+            blackhole.consume(VALID_CHANNEL.matcher(channel).matches());
+        }
+    }
+
+    @Benchmark
+    public void validSocketId() {
+        Prerequisites.isValidSocketId("123456.7890123");
+    }
+}
@@ -0,0 +1,134 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Applies a client's request policies to requests made asynchronously, for the clients which return a
+ * {@code CompletableFuture<Result>}. Waits are scheduled on a timer, so no thread is held while a request
+ * is backing off or waiting for the rate limiter.
+ */
+final class AsyncDispatcher {
+
+    private AsyncDispatcher() {
+    }
+
+    /**
+     * @param pusher       the client whose policies to apply
+     * @param requestQueue the queue to send each attempt through, or null
+     * @param request      signs and sends the request once
+     * @param messages     the number of messages the request publishes
+     * @return the result of the request
+     */
+    static CompletableFuture<Result> dispatch(final PusherAbstract<CompletableFuture<Result>> pusher,
+                                              final RequestQueue requestQueue,
+                                              final Supplier<CompletableFuture<Result>> request,
+                                              final int messages) {
+        final Supplier<CompletableFuture<Result>> attempt = withRateLimiter(
+                pusher.getRateLimiter(),
+                withRequestQueue(requestQueue, withCircuitBreaker(pusher.getCircuitBreaker(), request)),
+                messages);
+
+        final RetryPolicy retryPolicy = pusher.getRetryPolicy();
+        if (retryPolicy == null) {
+            return attempt.get();
+        }
+
+        retryPolicy.requestStarted();
+        return attemptWithRetries(attempt, retryPolicy, 0, System.nanoTime());
+    }
+
+    /**
+     * @return a future completed with the result of the call once the listener has been called with it
+     */
+    static CompletableFuture<Result> whenComplete(final CompletableFuture<Result> call, final Consumer<Result> listener) {
+        return call.whenComplete((r, t) -> listener.accept(r != null ? r : Result.fromThrowable(t)));
+    }
+
+    private static CompletableFuture<Result> attemptWithRetries(final Supplier<CompletableFuture<Result>> attempt,
+                                                                final RetryPolicy retryPolicy,
+                                                                final int retries,
+                                                                final long start) {
+        return attempt.get().thenCompose(result -> {
+            final long delay = retryPolicy.retryDelay(result, retries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (delay < 0) {
+                return CompletableFuture.completedFuture(result);
+            }
+
+            final Executor afterDelay = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> null, afterDelay)
+                    .thenCompose(ignored -> attemptWithRetries(attempt, retryPolicy, retries + 1, start));
+        });
+    }
+
+    // Requests waiting for tokens are delayed on a timer rather than blocking a thread, whatever the mode
+    private static Supplier<CompletableFuture<Result>> withRateLimiter(final RateLimiter rateLimiter,
+                                                                       final Supplier<CompletableFuture<Result>> attempt,
+                                                                       final int messages) {
+        if (rateLimiter == null || messages == 0) {
+            return attempt;
+        }
+
+        return () -> {
+            final long wait = rateLimiter.reserve(messages);
+            if (wait < 0) {
+                return CompletableFuture.completedFuture(Result.fromStatus(Status.RATE_LIMITED, RateLimiter.LIMITED_MESSAGE));
+            }
+
+            final CompletableFuture<Result> result;
+            if (wait == 0) {
+                result = attempt.get();
+            } else {
+                final Executor afterWait = CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS);
+                result = CompletableFuture.supplyAsync(() -> null, afterWait)
+                        .thenCompose(ignored -> attempt.get());
+            }
+
+            return result.thenApply(r -> {
+                rateLimiter.record(r.getStatus());
+                return r;
+            });
+        };
+    }
+
+    private static Supplier<CompletableFuture<Result>> withRequestQueue(final RequestQueue requestQueue,
+                                                                        final Supplier<CompletableFuture<Result>> attempt) {
+        if (requestQueue == null) {
+            return attempt;
+        }
+
+        return () -> requestQueue.submit(attempt);
+    }
+
+    private static Supplier<CompletableFuture<Result>> withCircuitBreaker(final CircuitBreaker circuitBreaker,
+                                                                          final Supplier<CompletableFuture<Result>> attempt) {
+        if (circuitBreaker == null) {
+            return attempt;
+        }
+
+        return () -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return CompletableFuture.completedFuture(Result.fromStatus(Status.CIRCUIT_OPEN, CircuitBreaker.OPEN_MESSAGE));
+            }
+
+            final long start = System.nanoTime();
+            final CompletableFuture<Result> result;
+            try {
+                result = attempt.get();
+            } catch (final RuntimeException e) {
+                circuitBreaker.record(Status.UNKNOWN_ERROR, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                throw e;
+            }
+
+            return result.whenComplete((r, t) -> circuitBreaker.record(
+                    r == null ? Status.UNKNOWN_ERROR : r.getStatus(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.pusher.rest;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.pusher.rest.data.ChannelInfo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Parses the buffered bodies of channel query responses with a {@link JsonReader}, handing each record to a
+ * consumer as it is read rather than building a tree of the body or a list of the records. This is not a
+ * streaming parser: the body has already been received whole. Unknown fields are skipped.
+ */
+final class ChannelQueryParser {
+
+    private ChannelQueryParser() {
+    }
+
+    /**
+     * Parse {@code {"channels":{"name":{"user_count":1},...}}}.
+     */
+    static void channels(final Reader in, final Consumer<ChannelInfo> consumer) {
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("channels")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    final String name = reader.nextName();
+                    consumer.accept(channel(reader, name, true));
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        } catch (final IOException | IllegalStateException e) {
+            throw new JsonParseException("Could not parse channel list", e);
+        }
+    }
+
+    /**
+     * Parse {@code {"occupied":true,"user_count":1,"subscription_count":2}}.
+     */
+    static ChannelInfo channel(final Reader in, final String name) {
+        try (JsonReader reader = new JsonReader(in)) {
+            return channel(reader, name, null);
+        } catch (final IOException | IllegalStateException e) {
+            throw new JsonParseException("Could not parse channel info", e);
+        }
+    }
+
+    /**
+     * Parse {@code {"users":[{"id":"1"},...]}}, passing on the user ids.
+     */
+    static void users(final Reader in, final Consumer<String> consumer) {
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("users")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    consumer.accept(userId(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (final IOException | IllegalStateException e) {
+            throw new JsonParseException("Could not parse user list", e);
+        }
+    }
+
+    private static ChannelInfo channel(final JsonReader reader, final String name, final Boolean occupied) throws IOException {
+        Boolean isOccupied = occupied;
+        Integer userCount = null;
+        Integer subscriptionCount = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "occupied":
+                    isOccupied = reader.nextBoolean();
+                    break;
+                case "user_count":
+                    userCount = reader.nextInt();
+                    break;
+                case "subscription_count":
+                    subscriptionCount = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ChannelInfo(name, isOccupied, userCount, subscriptionCount);
+    }
+
+    private static String userId(final JsonReader reader) throws IOException {
+        String id = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("id") && reader.peek() != JsonToken.NULL) {
+                // Ids are strings, but the API accepts numbers when authenticating
+                id = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return id;
+    }
+}
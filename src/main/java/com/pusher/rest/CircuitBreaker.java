@@ -0,0 +1,236 @@
+package com.pusher.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.pusher.rest.data.Result;
+
+/**
+ * Stops requests being sent to the API while it is failing, returning {@link Result.Status#CIRCUIT_OPEN}
+ * immediately instead of waiting for each request to fail or time out.
+ * <p>
+ * The outcomes of the most recent requests are kept in a sliding window. Once the window holds at least the
+ * minimum number of calls, the circuit opens if the proportion of failed calls (those whose status
+ * {@link Result.Status#shouldRetry() should be retried}), or optionally of slow calls, reaches its threshold.
+ * <p>
+ * After the open duration, the circuit becomes half-open and lets a limited number of probe requests through.
+ * If they all succeed the circuit closes again, if any fails it reopens.
+ * <p>
+ * Each attempt made under a {@link RetryPolicy} counts as a call. Instances are threadsafe, and may be
+ * shared between clients talking to the same cluster.
+ *
+ * @see PusherAbstract#setCircuitBreaker(CircuitBreaker)
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    static final String OPEN_MESSAGE = "Request not sent, the circuit breaker is open";
+
+    private final LongSupplier nanoClock;
+
+    private double failureRateThreshold = 0.5;
+    private long slowCallDuration = 0;
+    private double slowCallRateThreshold = 1.0;
+    private int minimumCalls = 20;
+    private long openDuration = 10000;
+    private int halfOpenProbes = 3;
+
+    // Outcomes of the most recent calls, as a ring buffer
+    private byte[] window = new byte[100];
+    private int windowPosition;
+    private int recordedCalls;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    public CircuitBreaker() {
+        this(System::nanoTime);
+    }
+
+    CircuitBreaker(final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Default: 0.5
+     *
+     * @param failureRateThreshold the proportion of failed calls in the window at which the circuit opens
+     */
+    public synchronized void setFailureRateThreshold(final double failureRateThreshold) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be greater than 0 and at most 1");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Open the circuit when too many calls are slow, even if they succeed.
+     * <p>
+     * Default: disabled
+     *
+     * @param slowCallDuration      calls taking at least this many milliseconds are slow, or 0 to disable
+     * @param slowCallRateThreshold the proportion of slow calls in the window at which the circuit opens
+     */
+    public synchronized void setSlowCallThreshold(final long slowCallDuration, final double slowCallRateThreshold) {
+        if (slowCallDuration < 0) {
+            throw new IllegalArgumentException("slowCallDuration must not be negative");
+        }
+        if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 1) {
+            throw new IllegalArgumentException("slowCallRateThreshold must be greater than 0 and at most 1");
+        }
+        this.slowCallDuration = slowCallDuration;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * Default: a window of 100 calls, of which at least 20 are needed before the circuit can open
+     *
+     * @param windowSize   the number of most recent calls whose outcome is considered
+     * @param minimumCalls the number of calls needed in the window before the circuit can open
+     */
+    public synchronized void setWindow(final int windowSize, final int minimumCalls) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1");
+        }
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+        }
+        this.window = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        resetWindow();
+    }
+
+    /**
+     * Default: 10000
+     *
+     * @param openDuration the milliseconds the circuit stays open before letting probe requests through
+     */
+    public synchronized void setOpenDuration(final long openDuration) {
+        if (openDuration < 0) {
+            throw new IllegalArgumentException("openDuration must not be negative");
+        }
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Default: 3
+     *
+     * @param halfOpenProbes the number of requests let through while half-open, all of which must succeed to close the circuit
+     */
+    public synchronized void setHalfOpenProbes(final int halfOpenProbes) {
+        if (halfOpenProbes < 1) {
+            throw new IllegalArgumentException("halfOpenProbes must be at least 1");
+        }
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * @return the current state of the circuit
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && openElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return whether a call may be made now. Every permitted call must be followed by {@link #record}.
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+        case CLOSED:
+            return true;
+        case OPEN:
+            if (!openElapsed()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            // fall through
+        default:
+            if (probesStarted >= halfOpenProbes) {
+                return false;
+            }
+            probesStarted++;
+            return true;
+        }
+    }
+
+    /**
+     * Record the outcome of a call permitted by {@link #tryAcquire()}.
+     *
+     * @param status  the status of the call
+     * @param latency the duration of the call in milliseconds
+     */
+    synchronized void record(final Result.Status status, final long latency) {
+        final boolean failed = status.shouldRetry();
+        final boolean slow = slowCallDuration > 0 && latency >= slowCallDuration;
+
+        switch (state) {
+        case HALF_OPEN:
+            if (failed || slow) {
+                open();
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            break;
+        case CLOSED:
+            recordInWindow((byte)((failed ? FAILURE : SUCCESS) | (slow ? SLOW : SUCCESS)));
+            if (recordedCalls >= minimumCalls
+                    && (failedCalls >= failureRateThreshold * recordedCalls
+                        || slowCallDuration > 0 && slowCalls >= slowCallRateThreshold * recordedCalls)) {
+                open();
+            }
+            break;
+        default:
+            // Calls permitted before the circuit opened, their outcome no longer matters
+        }
+    }
+
+    private void recordInWindow(final byte outcome) {
+        if (recordedCalls == window.length) {
+            final byte evicted = window[windowPosition];
+            if ((evicted & FAILURE) != 0) failedCalls--;
+            if ((evicted & SLOW) != 0) slowCalls--;
+        } else {
+            recordedCalls++;
+        }
+
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        if ((outcome & FAILURE) != 0) failedCalls++;
+        if ((outcome & SLOW) != 0) slowCalls++;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private boolean openElapsed() {
+        return nanoClock.getAsLong() - openedAt >= TimeUnit.MILLISECONDS.toNanos(openDuration);
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+    }
+}
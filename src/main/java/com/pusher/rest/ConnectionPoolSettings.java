@@ -0,0 +1,107 @@
+package com.pusher.rest;
+
+/**
+ * Settings for the pool of connections {@link Pusher} keeps open to the API.
+ * <p>
+ * All requests go to the same host, so the per-route limit is usually the one which matters; the defaults,
+ * which are those of Apache HTTP Client, allow only 2 requests to be in flight at once.
+ * <p>
+ * e.g.
+ * <pre>
+ * ConnectionPoolSettings pool = new ConnectionPoolSettings();
+ * pool.setMaxConnections(50, 50);
+ * pool.setIdleTimeout(30000);
+ * pusher.setConnectionPool(pool);
+ * </pre>
+ *
+ * @see Pusher#setConnectionPool(ConnectionPoolSettings)
+ * @see Pusher#defaultHttpClientBuilder(ConnectionPoolSettings)
+ */
+public class ConnectionPoolSettings {
+
+    private int maxTotal = 20;
+    private int maxPerRoute = 2;
+    private long idleTimeout = 0;
+    private int validateAfterInactivity = 2000;
+    private long timeToLive = 0;
+
+    /**
+     * Default: 20 in total, 2 per route
+     *
+     * @param maxTotal    the most connections to keep open at once
+     * @param maxPerRoute the most connections to keep open to each host at once
+     */
+    public void setMaxConnections(final int maxTotal, final int maxPerRoute) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("maxTotal must be at least 1");
+        }
+        if (maxPerRoute < 1 || maxPerRoute > maxTotal) {
+            throw new IllegalArgumentException("maxPerRoute must be between 1 and maxTotal");
+        }
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    /**
+     * Close connections which have been idle in the pool for this long, by means of a background thread.
+     * <p>
+     * Default: 0, idle connections are kept until the server closes them
+     *
+     * @param idleTimeout the milliseconds after which an idle connection is closed, or 0 to keep them
+     */
+    public void setIdleTimeout(final long idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout must not be negative");
+        }
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Check that a pooled connection is still open before reusing it, if it has been idle for this long.
+     * <p>
+     * Default: 2000
+     *
+     * @param validateAfterInactivity the milliseconds of inactivity after which a connection is checked, or 0 to never check
+     */
+    public void setValidateAfterInactivity(final int validateAfterInactivity) {
+        if (validateAfterInactivity < 0) {
+            throw new IllegalArgumentException("validateAfterInactivity must not be negative");
+        }
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Close connections once they have been open for this long, however busy they are, for example so
+     * that DNS changes are picked up.
+     * <p>
+     * Default: 0, connections are kept for as long as they are usable
+     *
+     * @param timeToLive the milliseconds a connection may stay open, or 0 for no limit
+     */
+    public void setTimeToLive(final long timeToLive) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    int getMaxTotal() {
+        return maxTotal;
+    }
+
+    int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    long getTimeToLive() {
+        return timeToLive;
+    }
+}
@@ -0,0 +1,96 @@
+package com.pusher.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.pusher.rest.util.Prerequisites;
+
+/**
+ * Computes HMAC-SHA256 signatures for a single secret.
+ * <p>
+ * Equivalent to {@link SignatureUtil#sign(String, String)}, but the Mac is looked up and keyed once per
+ * thread rather than on every call, and the hex encoding is done in a per-thread buffer.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int DIGEST_LENGTH = 32;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final ThreadLocal<char[]> hexBuffer = ThreadLocal.withInitial(() -> new char[DIGEST_LENGTH * 2]);
+
+    /**
+     * @param secret The App Secret to sign with.
+     */
+    public HmacSigner(final String secret) {
+        Prerequisites.nonEmpty("secret", secret);
+
+        this.key = new SecretKeySpec(secret.getBytes(), "SHA256");
+        this.mac = ThreadLocal.withInitial(this::newMac);
+
+        // Fail on construction rather than on first use if the key is unusable
+        this.mac.get();
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        }
+        catch (final InvalidKeyException e) {
+            throw new IllegalArgumentException("Parameter [secret] must be a valid SHA256 key", e);
+        }
+        // If this doesn't exist, we're pretty much out of luck.
+        catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException("The Pusher HTTP client requires HmacSHA256 support", e);
+        }
+    }
+
+    /**
+     * @param input the string to sign, which will be UTF-8 encoded
+     * @return the hex encoded signature
+     */
+    public String sign(final String input) {
+        return sign(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param input the bytes to sign
+     * @return the hex encoded signature
+     */
+    public String sign(final byte[] input) {
+        return sign(input, 0, input.length);
+    }
+
+    /**
+     * @param input  a buffer holding the bytes to sign
+     * @param offset the offset of the bytes to sign in the buffer
+     * @param length the number of bytes to sign
+     * @return the hex encoded signature
+     */
+    public String sign(final byte[] input, final int offset, final int length) {
+        final Mac mac = this.mac.get();
+        mac.update(input, offset, length);
+
+        // doFinal resets the Mac, ready for the next call on this thread
+        return hex(mac.doFinal());
+    }
+
+    private String hex(final byte[] digest) {
+        final char[] out = hexBuffer.get();
+        for (int i = 0; i < digest.length; i++) {
+            out[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+            out[i * 2 + 1] = HEX[digest[i] & 0x0f];
+        }
+        return new String(out, 0, digest.length * 2);
+    }
+}
@@ -0,0 +1,370 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.EncryptedMessage;
+import com.pusher.rest.data.Event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the JSON bodies of trigger and batch requests straight to UTF-8 bytes.
+ * <p>
+ * The output is identical to serialising {@link com.pusher.rest.data.TriggerData} or
+ * {@link com.pusher.rest.data.EventBatch} with {@link PusherAbstract#BODY_SERIALISER}, but the
+ * body is never built as a String. Event data is taken as the UTF-8 bytes produced by the
+ * marshaller and is escaped only once, as it is copied into the body. Event data encrypted in place is
+ * base64 encoded straight from the buffer it was sealed in.
+ * <p>
+ * Event data is passed as an Object, which is either a byte[] of UTF-8 encoded data, a {@link SealedMessage},
+ * or an {@link EncryptedMessage}.
+ */
+final class JsonBodyWriter {
+
+    private static final ThreadLocal<JsonBodyWriter> WRITERS = ThreadLocal.withInitial(JsonBodyWriter::new);
+
+    // Don't hold on to a buffer grown by an unusually large body for the life of the thread
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    // The escape sequence for each ASCII character, or null if it is written as is.
+    // These are the replacements made by Gson with HTML escaping disabled.
+    private static final byte[][] ESCAPES = new byte[128][];
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = unicodeEscape(c);
+        }
+        ESCAPES['"'] = "\\\"".getBytes();
+        ESCAPES['\\'] = "\\\\".getBytes();
+        ESCAPES['\t'] = "\\t".getBytes();
+        ESCAPES['\b'] = "\\b".getBytes();
+        ESCAPES['\n'] = "\\n".getBytes();
+        ESCAPES['\r'] = "\\r".getBytes();
+        ESCAPES['\f'] = "\\f".getBytes();
+    }
+
+    private byte[] buffer = new byte[1024];
+    private int count;
+
+    private JsonBodyWriter() {
+    }
+
+    /**
+     * @param data the serialised event data, UTF-8 encoded, or the encrypted event data
+     * @return the body of a request to the events endpoint
+     */
+    static byte[] trigger(final List<String> channels, final String eventName, final Object data, final String socketId) {
+        final JsonBodyWriter writer = WRITERS.get();
+        writer.count = 0;
+
+        writer.raw("{\"channels\":[");
+        for (int i = 0; i < channels.size(); i++) {
+            if (i > 0) writer.raw(',');
+            writer.string(channels.get(i));
+        }
+        writer.raw("],\"name\":");
+        writer.string(eventName);
+        writer.raw(",\"data\":");
+        writer.data(data);
+        if (socketId != null) {
+            writer.raw(",\"socket_id\":");
+            writer.string(socketId);
+        }
+        writer.raw('}');
+
+        return writer.end();
+    }
+
+    /**
+     * @param batch the events to publish; their data is ignored in favour of {@code data}
+     * @param data  the serialised data of each event in the batch, UTF-8 encoded, or its encrypted data
+     * @return the body of a request to the batch events endpoint
+     */
+    static byte[] batch(final List<Event> batch, final List<?> data) {
+        final JsonBodyWriter writer = WRITERS.get();
+        writer.count = 0;
+
+        writer.raw("{\"batch\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            final Event e = batch.get(i);
+            if (i > 0) writer.raw(',');
+            writer.raw("{\"channel\":");
+            writer.string(e.getChannel());
+            writer.raw(",\"name\":");
+            writer.string(e.getName());
+            writer.raw(",\"data\":");
+            writer.data(data.get(i));
+            if (e.getSocketId() != null) {
+                writer.raw(",\"socket_id\":");
+                writer.string(e.getSocketId());
+            }
+            writer.raw('}');
+        }
+        writer.raw("]}");
+
+        return writer.end();
+    }
+
+    /**
+     * Write the responses authenticating a socket for several presence channels as the same user, in the
+     * batched format {@code {"<channel>":{"status":200,"data":{"auth":"...","channel_data":"..."}},...}}, where
+     * each {@code data} is identical to the response of {@link PusherAbstract#authenticate(String, String, com.pusher.rest.data.PresenceUser)}.
+     * <p>
+     * The string to sign for each channel is assembled in one buffer, and the escaped channel data is written
+     * once and copied for the other channels.
+     *
+     * @param channels    the presence channels, already validated, so ASCII
+     * @param channelData the serialised user
+     * @return the UTF-8 encoded responses
+     */
+    static byte[] presenceAuth(final String key, final String socketId, final List<String> channels,
+                               final String channelData, final HmacSigner signer) {
+        final byte[] channelDataBytes = channelData.getBytes(StandardCharsets.UTF_8);
+
+        // socketId:channel:channelData, with the channel and what follows rewritten for each channel
+        int longestChannel = 0;
+        for (final String channel : channels) {
+            longestChannel = Math.max(longestChannel, channel.length());
+        }
+        final byte[] toSign = new byte[socketId.length() + 1 + longestChannel + 1 + channelDataBytes.length];
+        int channelStart = 0;
+        for (int i = 0; i < socketId.length(); i++) {
+            toSign[channelStart++] = (byte)socketId.charAt(i);
+        }
+        toSign[channelStart++] = ':';
+
+        final JsonBodyWriter writer = WRITERS.get();
+        writer.count = 0;
+
+        int escapedStart = -1;
+        int escapedLength = 0;
+
+        writer.raw('{');
+        for (int c = 0; c < channels.size(); c++) {
+            final String channel = channels.get(c);
+
+            int length = channelStart;
+            for (int i = 0; i < channel.length(); i++) {
+                toSign[length++] = (byte)channel.charAt(i);
+            }
+            toSign[length++] = ':';
+            System.arraycopy(channelDataBytes, 0, toSign, length, channelDataBytes.length);
+            length += channelDataBytes.length;
+
+            if (c > 0) writer.raw(',');
+            writer.string(channel);
+            writer.raw(":{\"status\":200,\"data\":{\"auth\":");
+            writer.string(key + ":" + signer.sign(toSign, 0, length));
+            writer.raw(",\"channel_data\":");
+            if (escapedStart < 0) {
+                escapedStart = writer.count;
+                writer.string(channelDataBytes);
+                escapedLength = writer.count - escapedStart;
+            } else {
+                writer.ensureCapacity(escapedLength);
+                System.arraycopy(writer.buffer, escapedStart, writer.buffer, writer.count, escapedLength);
+                writer.count += escapedLength;
+            }
+            writer.raw("}}");
+        }
+        writer.raw('}');
+
+        return writer.end();
+    }
+
+    private byte[] end() {
+        final byte[] body = Arrays.copyOf(buffer, count);
+
+        if (buffer.length > MAX_RETAINED_BUFFER) {
+            WRITERS.remove();
+        }
+        return body;
+    }
+
+    /*
+     * Writing
+     */
+
+    private void raw(final char c) {
+        ensureCapacity(1);
+        buffer[count++] = (byte)c;
+    }
+
+    // Only for the ASCII structure of the body
+    private void raw(final String s) {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[count++] = (byte)s.charAt(i);
+        }
+    }
+
+    private void data(final Object data) {
+        if (data instanceof SealedMessage) {
+            sealed((SealedMessage)data);
+        } else if (data instanceof EncryptedMessage) {
+            encrypted((EncryptedMessage)data);
+        } else {
+            string((byte[])data);
+        }
+    }
+
+    /**
+     * Write the JSON form of a message encrypted in place, as a JSON string.
+     */
+    private void sealed(final SealedMessage message) {
+        // The quotes are escaped since this JSON is itself a string value; base64 never needs escaping
+        raw("\"{\\\"nonce\\\":\\\"");
+        base64(message.nonce, 0, message.nonce.length);
+        raw("\\\",\\\"ciphertext\\\":\\\"");
+        base64(message.buffer, message.ciphertextOffset, message.ciphertextLength);
+        raw("\\\"}\"");
+    }
+
+    /**
+     * Write the JSON form of an encrypted message, as a JSON string.
+     */
+    private void encrypted(final EncryptedMessage message) {
+        final String nonce = message.getNonce();
+        final String ciphertext = message.getCiphertext();
+
+        if (!isBase64(nonce) || !isBase64(ciphertext)) {
+            // Not the output of CryptoUtil, e.g. from a subclass, so leave the escaping to Gson
+            string(PusherAbstract.BODY_SERIALISER.toJson(message));
+            return;
+        }
+
+        // The quotes are escaped since this JSON is itself a string value; base64 never needs escaping
+        raw("\"{\\\"nonce\\\":\\\"");
+        raw(nonce);
+        raw("\\\",\\\"ciphertext\\\":\\\"");
+        raw(ciphertext);
+        raw("\\\"}\"");
+    }
+
+    /**
+     * Write a String as a quoted and escaped JSON string.
+     */
+    private void string(final String s) {
+        // Enough for any char to be encoded, escapes make room for themselves
+        ensureCapacity(s.length() * 3 + 2);
+        buffer[count++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                final byte[] escape = ESCAPES[c];
+                if (escape == null) {
+                    buffer[count++] = (byte)c;
+                } else {
+                    escape(escape, (s.length() - i) * 3);
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte)(0xc0 | (c >> 6));
+                buffer[count++] = (byte)(0x80 | (c & 0x3f));
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                escape(unicodeEscape(c), (s.length() - i) * 3);
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[count++] = (byte)(0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte)(0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte)(0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte)(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates can't be encoded, replace them as String.getBytes would
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte)(0xe0 | (c >> 12));
+                buffer[count++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte)(0x80 | (c & 0x3f));
+            }
+        }
+        buffer[count++] = '"';
+    }
+
+    /**
+     * Write UTF-8 encoded text as a quoted and escaped JSON string, without decoding it.
+     */
+    private void string(final byte[] utf8) {
+        ensureCapacity(utf8.length + 2);
+        buffer[count++] = '"';
+        for (int i = 0; i < utf8.length; i++) {
+            final byte b = utf8[i];
+            if (b >= 0) {
+                final byte[] escape = ESCAPES[b];
+                if (escape == null) {
+                    buffer[count++] = b;
+                } else {
+                    escape(escape, utf8.length - i);
+                }
+            } else if (b == (byte)0xe2 && i + 2 < utf8.length && utf8[i + 1] == (byte)0x80
+                    && (utf8[i + 2] == (byte)0xa8 || utf8[i + 2] == (byte)0xa9)) {
+                // U+2028 and U+2029
+                escape(unicodeEscape(utf8[i + 2] == (byte)0xa8 ? LINE_SEPARATOR : PARAGRAPH_SEPARATOR), utf8.length - i);
+                i += 2;
+            } else {
+                // Multi-byte sequences are otherwise copied as they are
+                buffer[count++] = b;
+            }
+        }
+        buffer[count++] = '"';
+    }
+
+    private void base64(final byte[] bytes, final int offset, final int length) {
+        final int end = offset + length;
+        ensureCapacity((length + 2) / 3 * 4);
+
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            final int triple = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+            buffer[count++] = BASE64[triple >>> 18];
+            buffer[count++] = BASE64[(triple >>> 12) & 0x3f];
+            buffer[count++] = BASE64[(triple >>> 6) & 0x3f];
+            buffer[count++] = BASE64[triple & 0x3f];
+        }
+
+        if (i < end) {
+            final int first = bytes[i] & 0xff;
+            final int second = i + 1 < end ? bytes[i + 1] & 0xff : 0;
+            buffer[count++] = BASE64[first >>> 2];
+            buffer[count++] = BASE64[(first & 0x03) << 4 | second >>> 4];
+            buffer[count++] = i + 1 < end ? BASE64[(second & 0x0f) << 2] : (byte)'=';
+            buffer[count++] = '=';
+        }
+    }
+
+    private static boolean isBase64(final String s) {
+        if (s == null) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '+' || c == '/' || c == '=')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reserve room for the escape as well as the rest of the string being written, including its closing quote
+    private void escape(final byte[] escape, final int remaining) {
+        ensureCapacity(escape.length + remaining + 1);
+        System.arraycopy(escape, 0, buffer, count, escape.length);
+        count += escape.length;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+        }
+    }
+
+    private static byte[] unicodeEscape(final int c) {
+        return new byte[] {
+            '\\', 'u',
+            HEX[(c >> 12) & 0xf], HEX[(c >> 8) & 0xf], HEX[(c >> 4) & 0xf], HEX[c & 0xf]
+        };
+    }
+}
@@ -1,21 +1,33 @@
 package com.pusher.rest;
 
+import com.pusher.rest.data.Event;
 import com.pusher.rest.data.Result;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
+import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.data.WarmUpResult;
+import com.pusher.rest.transport.ApacheHttpTransport;
+import com.pusher.rest.transport.Transport;
+import com.pusher.rest.util.Prerequisites;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * A library for interacting with the Pusher HTTP API.
@@ -51,7 +63,19 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
 
     private int requestTimeout = 4000; // milliseconds
 
-    private CloseableHttpClient client;
+    private ApacheHttpTransport httpClientTransport;
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+    // Whether the pool is still the one set up by the constructor, which is resized for the default async executor
+    private volatile boolean defaultConnectionPool;
+    private Transport transport;
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private Executor asyncExecutor;
+    private ExecutorService defaultAsyncExecutor;
+
+    // Connections allowed by the default pool once the default async executor is in use
+    static final int DEFAULT_ASYNC_MAX_CONNECTIONS = 50;
 
     /**
      * Construct an instance of the Pusher object through which you may interact with the Pusher API.
@@ -64,7 +88,8 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
      */
     public Pusher(final String appId, final String key, final String secret) {
         super(appId, key, secret);
-        configureHttpClient(defaultHttpClientBuilder());
+        setConnectionPool(new ConnectionPoolSettings());
+        defaultConnectionPool = true;
     }
 
     /**
@@ -81,12 +106,14 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
     public Pusher(final String appId, final String key, final String secret, final String encryptionMasterKeyBase64) {
         super(appId, key, secret, encryptionMasterKeyBase64);
 
-        configureHttpClient(defaultHttpClientBuilder());
+        setConnectionPool(new ConnectionPoolSettings());
+        defaultConnectionPool = true;
     }
 
     public Pusher(final String url) {
         super(url);
-        configureHttpClient(defaultHttpClientBuilder());
+        setConnectionPool(new ConnectionPoolSettings());
+        defaultConnectionPool = true;
     }
 
     /*
@@ -100,6 +127,7 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
      */
     public void setRequestTimeout(final int requestTimeout) {
         this.requestTimeout = requestTimeout;
+        httpClientTransport.setRequestTimeout(requestTimeout);
     }
 
     /**
@@ -114,11 +142,148 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
      * @return an {@link org.apache.http.impl.client.HttpClientBuilder} with the default settings applied
      */
     public static HttpClientBuilder defaultHttpClientBuilder() {
-        return HttpClientBuilder.create()
-                .setConnectionManager(new PoolingHttpClientConnectionManager())
+        return defaultHttpClientBuilder(new ConnectionPoolSettings());
+    }
+
+    /**
+     * As {@link #defaultHttpClientBuilder()}, with a connection pool allowing the given number of connections to the
+     * API. The default pool allows only 2, which would serialise a large number of concurrent calls, such as those
+     * made with {@link #triggerAsync(String, String, Object)} on virtual threads.
+     *
+     * @param maxConnections the most connections to keep open to the API at once
+     * @return an {@link org.apache.http.impl.client.HttpClientBuilder} with the default settings applied
+     */
+    public static HttpClientBuilder defaultHttpClientBuilder(final int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+
+        final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+        pool.setMaxConnections(maxConnections, maxConnections);
+        return defaultHttpClientBuilder(pool);
+    }
+
+    /**
+     * As {@link #defaultHttpClientBuilder()}, with a connection pool configured by the given settings.
+     * <p>
+     * To have the statistics of the pool available from {@link #getConnectionPoolStats()}, use
+     * {@link #setConnectionPool(ConnectionPoolSettings)}, or pass the connection manager from
+     * {@link #newConnectionManager(ConnectionPoolSettings)} to {@link #configureHttpClient(HttpClientBuilder, PoolingHttpClientConnectionManager)}.
+     *
+     * @param pool the connection pool settings
+     * @return an {@link org.apache.http.impl.client.HttpClientBuilder} with the default settings applied
+     */
+    public static HttpClientBuilder defaultHttpClientBuilder(final ConnectionPoolSettings pool) {
+        return defaultHttpClientBuilder(pool, newConnectionManager(pool));
+    }
+
+    /**
+     * @param pool the connection pool settings
+     * @return a connection manager for a pool configured by the given settings
+     */
+    public static PoolingHttpClientConnectionManager newConnectionManager(final ConnectionPoolSettings pool) {
+        Prerequisites.nonNull("pool", pool);
+
+        final PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(pool.getTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(pool.getValidateAfterInactivity());
+        return connectionManager;
+    }
+
+    private static HttpClientBuilder defaultHttpClientBuilder(final ConnectionPoolSettings pool,
+                                                              final PoolingHttpClientConnectionManager connectionManager) {
+        final HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
                 .setConnectionReuseStrategy(new DefaultConnectionReuseStrategy())
                 .setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy())
                 .disableRedirectHandling();
+
+        if (pool.getIdleTimeout() > 0) {
+            builder.evictIdleConnections(pool.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (pool.getTimeToLive() > 0) {
+            builder.evictExpiredConnections();
+        }
+
+        return builder;
+    }
+
+    /**
+     * Replace the HTTP client with one built by {@link #defaultHttpClientBuilder(ConnectionPoolSettings)}.
+     * To combine pool settings with other configuration, such as a proxy, configure that builder and pass it to
+     * {@link #configureHttpClient(HttpClientBuilder, PoolingHttpClientConnectionManager)} instead.
+     *
+     * @param pool the connection pool settings
+     */
+    public void setConnectionPool(final ConnectionPoolSettings pool) {
+        final PoolingHttpClientConnectionManager connectionManager = newConnectionManager(pool);
+        configureHttpClient(defaultHttpClientBuilder(pool, connectionManager), connectionManager);
+    }
+
+    /**
+     * @return the number of connections leased, pending and available in the HTTP client's connection pool, or null
+     *         if the client was configured without telling it the connection manager, see
+     *         {@link #configureHttpClient(HttpClientBuilder, PoolingHttpClientConnectionManager)}
+     */
+    public PoolStats getConnectionPoolStats() {
+        final PoolingHttpClientConnectionManager connectionManager = this.connectionManager;
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
+
+    /**
+     * Set the executor on which the calls made by the {@code triggerAsync} methods are run.
+     * <p>
+     * Default: a virtual thread per call on Java 21 and later, otherwise a pool of daemon threads. Unless the
+     * connection pool has been configured, its limit is raised to 50 connections once the default executor is
+     * first used, so that concurrent calls don't queue for the default 2.
+     *
+     * @param executor the executor to run calls on, or null for the default
+     * @see #virtualThreadExecutor()
+     */
+    public synchronized void setAsyncExecutor(final Executor executor) {
+        this.asyncExecutor = executor;
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads, which need Java 21 or later
+     */
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor which runs each task on a new virtual thread, for use with {@link #setAsyncExecutor(Executor)}.
+     * <p>
+     * The library is built for Java 11, so the executor is looked up at runtime.
+     *
+     * @return a new virtual thread per task executor
+     * @throws UnsupportedOperationException if the runtime doesn't support virtual threads
+     */
+    public static ExecutorService virtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        }
+
+        try {
+            return (ExecutorService)NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        if (Runtime.version().feature() < 21) {
+            // Earlier versions may have the method, but only as a preview feature
+            return null;
+        }
+
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
     }
 
     /**
@@ -149,61 +314,315 @@ public class Pusher extends PusherAbstract<Result> implements AutoCloseable {
      * the internal HTTP client
      */
     public void configureHttpClient(final HttpClientBuilder builder) {
+        configureHttpClient(builder, null);
+    }
+
+    /**
+     * As {@link #configureHttpClient(HttpClientBuilder)}, with the connection manager the client should use, whose
+     * statistics are then available from {@link #getConnectionPoolStats()}.
+     * <p>
+     * e.g.
+     * <pre>
+     * PoolingHttpClientConnectionManager connectionManager = Pusher.newConnectionManager(pool);
+     * pusher.configureHttpClient(
+     *     Pusher.defaultHttpClientBuilder().setProxy(new HttpHost("proxy.example.com")),
+     *     connectionManager
+     * );
+     * </pre>
+     *
+     * @param builder           an {@link org.apache.http.impl.client.HttpClientBuilder} with which to configure
+     *                          the internal HTTP client
+     * @param connectionManager the connection manager to set on the builder, or null to leave the builder's own
+     */
+    public void configureHttpClient(final HttpClientBuilder builder, final PoolingHttpClientConnectionManager connectionManager) {
         try {
-            close();
+            closeHttpClient();
         } catch (final Exception e) {
             // Not a lot useful we can do here
         }
 
-        this.client = builder.build();
+        if (connectionManager != null) {
+            builder.setConnectionManager(connectionManager);
+        }
+        this.connectionManager = connectionManager;
+        this.defaultConnectionPool = false;
+        this.httpClientTransport = new ApacheHttpTransport(builder.build());
+        httpClientTransport.setRequestTimeout(requestTimeout);
+    }
+
+    /**
+     * Send requests with the given transport rather than the Apache HTTP client, for example to use another
+     * HTTP library or to stand in for the API in tests. The client set by {@link #configureHttpClient(HttpClientBuilder)}
+     * is then unused. The transport is closed when this client is.
+     * <p>
+     * Default: null, requests are sent with the Apache HTTP client
+     *
+     * @param transport the transport to send requests with, or null to use the Apache HTTP client
+     */
+    public void setTransport(final Transport transport) {
+        this.transport = transport;
     }
 
     /*
      * REST
      */
 
+    /**
+     * As {@link #trigger(String, String, Object)}, run on the {@link #setAsyncExecutor(Executor) async executor}.
+     * <p>
+     * The data is serialised on the executor, so must not be modified until the returned future completes.
+     *
+     * @param channel   the channel name on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @return a future completed with the {@link Result} of the request, or exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Result> triggerAsync(final String channel, final String eventName, final Object data) {
+        return runAsync(() -> trigger(channel, eventName, data));
+    }
+
+    /**
+     * As {@link #trigger(List, String, Object)}, run on the {@link #setAsyncExecutor(Executor) async executor}.
+     *
+     * @param channels  the channel names on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @return a future completed with the {@link Result} of the request, or exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Result> triggerAsync(final List<String> channels, final String eventName, final Object data) {
+        return runAsync(() -> trigger(channels, eventName, data));
+    }
+
+    /**
+     * As {@link #trigger(String, String, Object, String)}, run on the {@link #setAsyncExecutor(Executor) async executor}.
+     *
+     * @param channel   the channel name on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @param socketId  a socket id which should be excluded from receiving the event
+     * @return a future completed with the {@link Result} of the request, or exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Result> triggerAsync(final String channel, final String eventName, final Object data, final String socketId) {
+        return runAsync(() -> trigger(channel, eventName, data, socketId));
+    }
+
+    /**
+     * As {@link #trigger(List, String, Object, String)}, run on the {@link #setAsyncExecutor(Executor) async executor}.
+     *
+     * @param channels  the channel names on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @param socketId  a socket id which should be excluded from receiving the event
+     * @return a future completed with the {@link Result} of the request, or exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Result> triggerAsync(final List<String> channels, final String eventName, final Object data, final String socketId) {
+        return runAsync(() -> trigger(channels, eventName, data, socketId));
+    }
+
+    /**
+     * As {@link #trigger(List)}, run on the {@link #setAsyncExecutor(Executor) async executor}.
+     *
+     * @param batch a list of events to publish
+     * @return a future completed with the {@link Result} of the request, or exceptionally if the arguments are invalid
+     */
+    public CompletableFuture<Result> triggerAsync(final List<Event> batch) {
+        return runAsync(() -> trigger(batch));
+    }
+
+    /**
+     * Open connections to the API ahead of the first requests, so that they don't pay for the DNS lookup and the
+     * TCP and TLS handshakes. Makes the given number of concurrent signed requests for the channel list, on the
+     * {@link #setAsyncExecutor(Executor) async executor}, and returns once they have all completed.
+     * <p>
+     * No more connections are opened than the connection pool's per-route limit, see
+     * {@link #setConnectionPool(ConnectionPoolSettings)}. The requests are not retried, or subject to the other
+     * request policies.
+     *
+     * @param connections the number of connections to open
+     * @return how many of the requests got a response, and how long warming up took
+     */
+    public WarmUpResult warmUp(final int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be at least 1");
+        }
+
+        final long start = System.nanoTime();
+        final Executor executor = asyncExecutor();
+        final List<CompletableFuture<Result>> requests = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            requests.add(CompletableFuture.supplyAsync(() -> doGet(warmUpUri()), executor));
+        }
+
+        return warmUpResult(requests, start);
+    }
+
+    private CompletableFuture<Result> runAsync(final Supplier<Result> call) {
+        return CompletableFuture.supplyAsync(call, asyncExecutor());
+    }
+
+    private synchronized Executor asyncExecutor() {
+        if (asyncExecutor != null) {
+            return asyncExecutor;
+        }
+
+        if (defaultAsyncExecutor == null) {
+            defaultAsyncExecutor = virtualThreadsAvailable() ? virtualThreadExecutor() : daemonThreadPool();
+        }
+
+        // The default pool's 2 connections would serialise the calls, so allow more unless the pool was configured
+        final PoolingHttpClientConnectionManager connectionManager = this.connectionManager;
+        if (defaultConnectionPool && connectionManager != null) {
+            connectionManager.setMaxTotal(DEFAULT_ASYNC_MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(DEFAULT_ASYNC_MAX_CONNECTIONS);
+            defaultConnectionPool = false;
+        }
+        return defaultAsyncExecutor;
+    }
+
+    private static ExecutorService daemonThreadPool() {
+        final AtomicInteger threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            final Thread thread = new Thread(task, "pusher-http-async-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     @Override
     protected Result doGet(final URI uri) {
-        return httpCall(new HttpGet(uri));
+        return send(transport(), "GET", uri, null).join();
     }
 
     @Override
     protected Result doPost(final URI uri, final String body) {
-        final StringEntity bodyEntity = new StringEntity(body, "UTF-8");
-        bodyEntity.setContentType("application/json");
+        return doPost(uri, body.getBytes(StandardCharsets.UTF_8));
+    }
 
-        final HttpPost request = new HttpPost(uri);
-        request.setEntity(bodyEntity);
+    @Override
+    protected Result doPost(final URI uri, final byte[] body) {
+        return send(transport(), "POST", uri, body).join();
+    }
 
-        return httpCall(request);
+    private Transport transport() {
+        final Transport transport = this.transport;
+        return transport != null ? transport : httpClientTransport;
     }
 
-    Result httpCall(final HttpRequestBase request) {
-        final RequestConfig config = RequestConfig.custom()
-                .setSocketTimeout(requestTimeout)
-                .setConnectionRequestTimeout(requestTimeout)
-                .setConnectTimeout(requestTimeout)
-                .build();
-        request.setConfig(config);
+    @Override
+    protected Result dispatch(final Supplier<Result> request, final int messages) {
+        final Supplier<Result> attempt = withRateLimiter(withCircuitBreaker(request), messages);
 
-        try {
-            final HttpResponse response = client.execute(request);
+        final RetryPolicy retryPolicy = getRetryPolicy();
+        if (retryPolicy == null) {
+            return attempt.get();
+        }
+
+        final long start = System.nanoTime();
+        retryPolicy.requestStarted();
+        for (int retries = 0; ; retries++) {
+            final Result result = attempt.get();
+
+            final long delay = retryPolicy.retryDelay(result, retries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (delay < 0) {
+                return result;
+            }
+
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return result;
+            }
+        }
+    }
+
+    @Override
+    protected Result whenComplete(final Result call, final Consumer<Result> listener) {
+        listener.accept(call);
+        return call;
+    }
 
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            response.getEntity().writeTo(baos);
-            final String responseBody = new String(baos.toByteArray(), "UTF-8");
+    @Override
+    protected boolean canShareResults() {
+        return true;
+    }
+
+    @Override
+    protected Result fromFuture(final CompletableFuture<Result> result) {
+        return result.join();
+    }
 
-            return Result.fromHttpCode(response.getStatusLine().getStatusCode(), responseBody);
+    private Supplier<Result> withRateLimiter(final Supplier<Result> attempt, final int messages) {
+        final RateLimiter rateLimiter = getRateLimiter();
+        if (rateLimiter == null || messages == 0) {
+            return attempt;
         }
-        catch (final IOException e) {
-            return Result.fromException(e);
+
+        return () -> {
+            final long wait = rateLimiter.reserve(messages);
+            if (wait < 0) {
+                return Result.fromStatus(Status.RATE_LIMITED, RateLimiter.LIMITED_MESSAGE);
+            }
+
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Result.fromStatus(Status.RATE_LIMITED, RateLimiter.LIMITED_MESSAGE);
+                }
+            }
+
+            final Result result = attempt.get();
+            rateLimiter.record(result.getStatus());
+            return result;
+        };
+    }
+
+    private Supplier<Result> withCircuitBreaker(final Supplier<Result> attempt) {
+        final CircuitBreaker circuitBreaker = getCircuitBreaker();
+        if (circuitBreaker == null) {
+            return attempt;
         }
+
+        return () -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Result.fromStatus(Status.CIRCUIT_OPEN, CircuitBreaker.OPEN_MESSAGE);
+            }
+
+            final long start = System.nanoTime();
+            Status status = Status.UNKNOWN_ERROR;
+            try {
+                final Result result = attempt.get();
+                status = result.getStatus();
+                return result;
+            } finally {
+                circuitBreaker.record(status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        };
+    }
+
+    Result httpCall(final HttpRequestBase request) {
+        return httpClientTransport.execute(request);
     }
 
     @Override
-    public void close() throws Exception {
-        if (client != null) {
-            client.close();
+    public void close() throws IOException {
+        synchronized (this) {
+            if (defaultAsyncExecutor != null) {
+                defaultAsyncExecutor.shutdown();
+                defaultAsyncExecutor = null;
+            }
+        }
+        if (transport != null) {
+            transport.close();
+        }
+        closeHttpClient();
+    }
+
+    private void closeHttpClient() throws IOException {
+        if (httpClientTransport != null) {
+            httpClientTransport.close();
         }
     }
 
@@ -4,17 +4,37 @@ import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.pusher.rest.crypto.CryptoUtil;
+import com.pusher.rest.crypto.NonceGenerator;
+import com.pusher.rest.crypto.nacl.SecretBox;
 import com.pusher.rest.data.*;
 import com.pusher.rest.marshaller.DataMarshaller;
 import com.pusher.rest.marshaller.DefaultDataMarshaller;
+import com.pusher.rest.metrics.NoOpRequestMetrics;
+import com.pusher.rest.metrics.RequestMetrics;
+import com.pusher.rest.tracing.Span.Kind;
+import com.pusher.rest.tracing.TraceListener;
+import com.pusher.rest.transport.Transport;
+import com.pusher.rest.transport.TransportRequest;
 import com.pusher.rest.util.Prerequisites;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,16 +53,33 @@ public abstract class PusherAbstract<T> {
 
     private static final Pattern HEROKU_URL = Pattern.compile("(https?)://(.+):(.+)@(.+:?.*)/apps/(.+)");
     private static final String ENCRYPTED_CHANNEL_PREFIX = "private-encrypted-";
+    private static final String EVENTS = "/events";
+    private static final String BATCH_EVENTS = "/batch_events";
+
+    private static final ThreadLocal<ByteArrayOutputStream> SERIALISATION_BUFFER =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(1024));
+    private static final int MAX_RETAINED_SERIALISATION_BUFFER = 256 * 1024;
+    private static final byte[] LEADING_ZEROS = new byte[SecretBox.MESSAGE_OFFSET];
 
     protected final String appId;
     protected final String key;
     protected final String secret;
+    private final HmacSigner signer;
 
     protected String host = "api.pusherapp.com";
     protected String scheme = "http";
 
     private DataMarshaller dataMarshaller;
+    private final boolean serialiseOverridden = overridesSerialise(getClass());
     private CryptoUtil crypto;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private RateLimiter rateLimiter;
+    private RequestMetrics requestMetrics = NoOpRequestMetrics.INSTANCE;
+    private TraceListener traceListener;
+    private QueryCache queryCache;
+    private boolean parallelBatchEncoding = false;
+    private Executor batchEncodingExecutor = ForkJoinPool.commonPool();
     private final boolean hasValidEncryptionMasterKey;
 
     /**
@@ -64,6 +101,7 @@ public abstract class PusherAbstract<T> {
         this.appId = appId;
         this.key = key;
         this.secret = secret;
+        this.signer = new HmacSigner(secret);
         this.hasValidEncryptionMasterKey = false;
 
         configureDataMarshaller();
@@ -90,6 +128,7 @@ public abstract class PusherAbstract<T> {
         this.appId = appId;
         this.key = key;
         this.secret = secret;
+        this.signer = new HmacSigner(secret);
 
         this.crypto = new CryptoUtil(encryptionMasterKeyBase64);
         this.hasValidEncryptionMasterKey = true;
@@ -113,6 +152,7 @@ public abstract class PusherAbstract<T> {
         }
 
         Prerequisites.isValidSha256Key("secret", secret);
+        this.signer = new HmacSigner(secret);
         configureDataMarshaller();
     }
 
@@ -203,6 +243,149 @@ public abstract class PusherAbstract<T> {
         this.dataMarshaller = marshaller;
     }
 
+    /**
+     * Set the number of encrypted channels whose derived keys are cached, see
+     * {@link CryptoUtil#setChannelKeyCacheSize(int)}. Has no effect unless an encryption master key was given.
+     * <p>
+     * Default: 1000
+     *
+     * @param size the maximum number of channels to keep keys for
+     */
+    public void setChannelKeyCacheSize(final int size) {
+        if (crypto != null) {
+            crypto.setChannelKeyCacheSize(size);
+        }
+    }
+
+    /**
+     * Set the source of the nonces used to encrypt messages on encrypted channels, see
+     * {@link CryptoUtil#setNonceGenerator(NonceGenerator)}. Has no effect unless an encryption master key was given.
+     *
+     * @param nonceGenerator the generator to use, for example a {@link com.pusher.rest.crypto.PooledNonceGenerator}
+     */
+    public void setNonceGenerator(final NonceGenerator nonceGenerator) {
+        if (crypto != null) {
+            crypto.setNonceGenerator(nonceGenerator);
+        }
+    }
+
+    /**
+     * Retry requests which fail in a way which is worth retrying, according to the given policy.
+     * <p>
+     * Default: null, requests are not retried
+     *
+     * @param retryPolicy the policy to apply, or null to disable retries
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Fail requests immediately, with {@link com.pusher.rest.data.Result.Status#CIRCUIT_OPEN}, while the API is
+     * failing, rather than sending them.
+     * <p>
+     * Default: null, requests are always sent
+     *
+     * @param circuitBreaker the circuit breaker to apply, or null to disable it
+     */
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Limit the rate at which messages are published, waiting for or failing with
+     * {@link com.pusher.rest.data.Result.Status#RATE_LIMITED} the requests which would exceed it.
+     * <p>
+     * Default: null, the rate is not limited
+     *
+     * @param rateLimiter the rate limiter to apply, or null to disable it
+     */
+    public void setRateLimiter(final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Record the count, latency and payload size of requests by endpoint and result status, and the time spent
+     * preparing them, for example with an {@link com.pusher.rest.metrics.InMemoryRequestMetrics}.
+     * <p>
+     * Default: {@link NoOpRequestMetrics}
+     *
+     * @param requestMetrics the metrics to record requests with
+     */
+    public void setRequestMetrics(final RequestMetrics requestMetrics) {
+        Prerequisites.nonNull("requestMetrics", requestMetrics);
+
+        this.requestMetrics = requestMetrics;
+    }
+
+    /**
+     * Report the timed phases of each request, from validating its arguments to sending it, as spans to the
+     * listener, for example a {@link com.pusher.rest.tracing.RingBufferTraceListener}.
+     * <p>
+     * Default: null, requests are not traced
+     *
+     * @param traceListener the listener to report spans to, or null to disable tracing
+     */
+    public void setTraceListener(final TraceListener traceListener) {
+        this.traceListener = traceListener;
+    }
+
+    /**
+     * Reuse the results of channel queries for a time, and send only one of any identical queries made
+     * concurrently, see {@link QueryCache}.
+     * <p>
+     * Default: null, every query is sent
+     *
+     * @param queryCache the cache to answer channel queries from, or null to disable it
+     * @throws IllegalArgumentException if this client can't share results between calls, see {@link #canShareResults()}
+     */
+    public void setQueryCache(final QueryCache queryCache) {
+        if (queryCache != null && !canShareResults()) {
+            throw new IllegalArgumentException(getClass().getName() + " can't share results between calls, so can't use a query cache");
+        }
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Serialise, and encrypt where needed, the events of a batch in parallel rather than one after another
+     * on the calling thread. Worthwhile for batches of large or encrypted events. The order of the events
+     * in the batch is unaffected.
+     * <p>
+     * Default: false
+     *
+     * @param parallel whether to encode batch events in parallel
+     * @see #setBatchEncodingExecutor(Executor)
+     */
+    public void setParallelBatchEncoding(final boolean parallel) {
+        this.parallelBatchEncoding = parallel;
+    }
+
+    /**
+     * Set the executor used to encode batch events when {@link #setParallelBatchEncoding(boolean)} is enabled.
+     * The calling thread also encodes one of the events.
+     * <p>
+     * Default: {@link ForkJoinPool#commonPool()}
+     *
+     * @param executor the executor to encode batch events on
+     */
+    public void setBatchEncodingExecutor(final Executor executor) {
+        Prerequisites.nonNull("executor", executor);
+
+        this.batchEncodingExecutor = executor;
+    }
+
     /**
      * This method provides an override point if the default Gson based serialisation is absolutely
      * unsuitable for your use case, even with customisation of the Gson instance doing the serialisation.
@@ -226,6 +409,64 @@ public abstract class PusherAbstract<T> {
         return dataMarshaller.marshal(data);
     }
 
+    /**
+     * Serialise event data to UTF-8 bytes. This goes through {@link #serialise(Object)} if a subclass
+     * overrides it, otherwise the marshaller writes the bytes directly.
+     */
+    private byte[] serialiseToUtf8(final RequestTrace trace, final Object data) {
+        return serialiseToUtf8(trace, data, 0);
+    }
+
+    /**
+     * @param offset the number of bytes to leave before the serialised data, e.g. for it to be encrypted in place
+     */
+    private byte[] serialiseToUtf8(final RequestTrace trace, final Object data, final int offset) {
+        final long start = trace.now();
+        final byte[] bytes = serialiseToUtf8(data, offset);
+        trace.phase(Kind.SERIALISE, start);
+        return bytes;
+    }
+
+    private byte[] serialiseToUtf8(final Object data, final int offset) {
+        if (serialiseOverridden) {
+            final byte[] serialised = serialise(data).getBytes(StandardCharsets.UTF_8);
+            if (offset == 0) {
+                return serialised;
+            }
+            final byte[] bytes = new byte[offset + serialised.length];
+            System.arraycopy(serialised, 0, bytes, offset, serialised.length);
+            return bytes;
+        }
+
+        final ByteArrayOutputStream out = SERIALISATION_BUFFER.get();
+        out.reset();
+        try {
+            out.write(LEADING_ZEROS, 0, offset);
+            dataMarshaller.marshal(data, out);
+        } catch (final IOException e) {
+            SERIALISATION_BUFFER.remove();
+            throw new UncheckedIOException("Could not serialise event data", e);
+        }
+
+        final byte[] bytes = out.toByteArray();
+        if (bytes.length > MAX_RETAINED_SERIALISATION_BUFFER) {
+            SERIALISATION_BUFFER.remove();
+        }
+        return bytes;
+    }
+
+    private static boolean overridesSerialise(final Class<?> type) {
+        for (Class<?> c = type; c != PusherAbstract.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("serialise", Object.class);
+                return true;
+            } catch (final NoSuchMethodException e) {
+                // Keep looking up the hierarchy
+            }
+        }
+        return false;
+    }
+
     /*
      * REST
      */
@@ -283,6 +524,9 @@ public abstract class PusherAbstract<T> {
      * @return a {@link Result} object encapsulating the success state and response to the request
      */
     public T trigger(final List<String> channels, final String eventName, final Object data, final String socketId) {
+        final RequestTrace trace = RequestTrace.start(EVENTS, requestMetrics, traceListener, channels == null ? 0 : channels.size());
+
+        final long validationStart = trace.now();
         Prerequisites.nonNull("channels", channels);
         Prerequisites.nonNull("eventName", eventName);
         Prerequisites.nonNull("data", data);
@@ -290,15 +534,16 @@ public abstract class PusherAbstract<T> {
         Prerequisites.noNullMembers("channels", channels);
         Prerequisites.areValidChannels(channels);
         Prerequisites.isValidSocketId(socketId);
+        trace.phase(Kind.VALIDATE, validationStart);
 
-        final String eventBody;
+        final Object eventBody;
         final String encryptedChannel = channels.stream()
             .filter(this::isEncryptedChannel)
             .findFirst()
             .orElse("");
 
         if (encryptedChannel.isEmpty()) {
-            eventBody = serialise(data);
+            eventBody = serialiseToUtf8(trace, data);
         } else {
             requireEncryptionMasterKey();
 
@@ -306,12 +551,14 @@ public abstract class PusherAbstract<T> {
                 throw PusherException.cannotTriggerMultipleChannelsWithEncryption();
             }
 
-            eventBody = encryptPayload(encryptedChannel, serialise(data));
+            eventBody = encryptPayload(trace, encryptedChannel, data);
         }
 
-        final String body = BODY_SERIALISER.toJson(new TriggerData(channels, eventName, eventBody, socketId));
+        final long start = trace.now();
+        final byte[] body = JsonBodyWriter.trigger(channels, eventName, eventBody, socketId);
+        trace.phase(Kind.SERIALISE, start);
 
-        return post("/events", body);
+        return post(trace, EVENTS, body, channels.size());
     }
 
 
@@ -324,32 +571,59 @@ public abstract class PusherAbstract<T> {
      * @return a {@link Result} object encapsulating the success state and response to the request
      */
     public T trigger(final List<Event> batch) {
-        final List<Event> eventsWithSerialisedBodies = new ArrayList<Event>(batch.size());
+        final RequestTrace trace = RequestTrace.start(BATCH_EVENTS, requestMetrics, traceListener, batch.size());
 
-        for (final Event e : batch) {
-            final String eventData;
+        final List<Object> serialisedBodies;
+        if (parallelBatchEncoding && batch.size() > 1) {
+            serialisedBodies = encodeInParallel(trace, batch);
+        } else {
+            serialisedBodies = new ArrayList<Object>(batch.size());
+            for (final Event e : batch) {
+                serialisedBodies.add(encodeBatchEvent(trace, e));
+            }
+        }
 
-            if (isEncryptedChannel(e.getChannel())) {
-                requireEncryptionMasterKey();
+        final long start = trace.now();
+        final byte[] body = JsonBodyWriter.batch(batch, serialisedBodies);
+        trace.phase(Kind.SERIALISE, start);
 
-                eventData = encryptPayload(e.getChannel(), serialise(e.getData()));
-            } else {
-                eventData = serialise(e.getData());
-            }
+        return post(trace, BATCH_EVENTS, body, batch.size());
+    }
 
-            eventsWithSerialisedBodies.add(
-                    new Event(
-                            e.getChannel(),
-                            e.getName(),
-                            eventData,
-                            e.getSocketId()
-                    )
-            );
+    /**
+     * @return the serialised, and if necessary encrypted, data of a batch event
+     */
+    private Object encodeBatchEvent(final RequestTrace trace, final Event e) {
+        if (isEncryptedChannel(e.getChannel())) {
+            requireEncryptionMasterKey();
+
+            return encryptPayload(trace, e.getChannel(), e.getData());
+        } else {
+            return serialiseToUtf8(trace, e.getData());
         }
+    }
 
-        final String body = BODY_SERIALISER.toJson(new EventBatch(eventsWithSerialisedBodies));
+    private List<Object> encodeInParallel(final RequestTrace trace, final List<Event> batch) {
+        final List<CompletableFuture<Object>> pending = new ArrayList<CompletableFuture<Object>>(batch.size());
+        for (int i = 1; i < batch.size(); i++) {
+            final Event e = batch.get(i);
+            pending.add(CompletableFuture.supplyAsync(() -> encodeBatchEvent(trace, e), batchEncodingExecutor));
+        }
 
-        return post("/batch_events", body);
+        // The calling thread takes the first event rather than sitting idle
+        final List<Object> encoded = new ArrayList<Object>(batch.size());
+        encoded.add(encodeBatchEvent(trace, batch.get(0)));
+
+        for (final CompletableFuture<Object> f : pending) {
+            try {
+                encoded.add(f.join());
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                if (e.getCause() instanceof Error) throw (Error)e.getCause();
+                throw e;
+            }
+        }
+        return encoded;
     }
 
     /**
@@ -385,10 +659,33 @@ public abstract class PusherAbstract<T> {
      * @return a {@link Result} object encapsulating the success state and response to the request
      */
     public T get(final String path, final Map<String, String> parameters) {
+        final QueryCache queryCache = this.queryCache;
+        if (queryCache == null || !QueryCache.isCacheable(path)) {
+            return query(path, parameters);
+        }
+
+        final CompletableFuture<Result> pending = new CompletableFuture<Result>();
+        final CompletableFuture<Result> cached = queryCache.lookup(QueryCache.key(path, parameters), pending);
+        if (cached != null) {
+            return fromFuture(cached);
+        }
+
+        try {
+            return whenComplete(query(path, parameters), pending::complete);
+        } catch (final RuntimeException | Error e) {
+            // Release any identical queries waiting on this one
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private T query(final String path, final Map<String, String> parameters) {
         final String fullPath = "/apps/" + appId + path;
-        final URI uri = SignatureUtil.uri("GET", scheme, host, fullPath, null, key, secret, parameters);
+        final RequestTrace trace = RequestTrace.start(endpoint(path), requestMetrics, traceListener, 0);
 
-        return doGet(uri);
+        trace.dispatching(0);
+        final T call = dispatch(() -> sent(trace, () -> doGet(signed(trace, () -> SignatureUtil.uri("GET", scheme, host, fullPath, (byte[])null, key, signer, parameters)))), 0);
+        return ended(trace, call);
     }
 
     protected abstract T doGet(final URI uri);
@@ -410,13 +707,147 @@ public abstract class PusherAbstract<T> {
      */
     public T post(final String path, final String body) {
         final String fullPath = "/apps/" + appId + path;
-        final URI uri = SignatureUtil.uri("POST", scheme, host, fullPath, body, key, secret, Collections.<String, String>emptyMap());
+        final RequestTrace trace = RequestTrace.start(endpoint(path), requestMetrics, traceListener, 0);
 
-        return doPost(uri, body);
+        trace.dispatching(trace.isEnabled() ? body.getBytes(StandardCharsets.UTF_8).length : 0);
+        final T call = dispatch(() -> sent(trace, () -> doPost(signed(trace, () -> SignatureUtil.uri("POST", scheme, host, fullPath, body, key, signer, Collections.<String, String>emptyMap())), body)), 0);
+        return ended(trace, call);
+    }
+
+    /**
+     * As {@link #post(String, String)}, for a body which is already UTF-8 encoded.
+     *
+     * @param path     the path (e.g. /events) to submit
+     * @param body     the UTF-8 encoded body to submit
+     * @param messages the number of messages the request publishes, for rate limiting
+     * @return a {@link Result} object encapsulating the success state and response to the request
+     */
+    protected T post(final String path, final byte[] body, final int messages) {
+        return post(RequestTrace.start(endpoint(path), requestMetrics, traceListener, 0), path, body, messages);
+    }
+
+    private T post(final RequestTrace trace, final String path, final byte[] body, final int messages) {
+        final String fullPath = "/apps/" + appId + path;
+
+        trace.dispatching(body.length);
+        final T call = dispatch(() -> sent(trace, () -> doPost(signed(trace, () -> SignatureUtil.uri("POST", scheme, host, fullPath, body, key, signer, Collections.<String, String>emptyMap())), body)), messages);
+        return ended(trace, call);
+    }
+
+    /**
+     * Make a request, applying the client's request policies such as retries and rate limiting.
+     * <p>
+     * Each call to {@code attempt} signs and sends the request once; it is called again for each retry,
+     * so that every attempt has a fresh signature. The default implementation makes a single attempt.
+     *
+     * @param attempt  signs and sends the request
+     * @param messages the number of messages the request publishes, 0 for queries and generic calls
+     * @return the result of the request
+     */
+    protected T dispatch(final Supplier<T> attempt, final int messages) {
+        return attempt.get();
     }
 
     protected abstract T doPost(final URI uri, final String body);
 
+    /**
+     * Call the listener with the result of a call once it has completed. The clients in this library override
+     * this; by default the listener is never called, so requests made by other subclasses are not recorded.
+     *
+     * @param call     the call made
+     * @param listener to call with its result
+     * @return the call, or a call which completes once the listener has been called
+     */
+    protected T whenComplete(final T call, final Consumer<Result> listener) {
+        return call;
+    }
+
+    /**
+     * Whether this client passes the results of its calls to {@link #whenComplete} listeners and implements
+     * {@link #fromFuture}, so that results can be shared between calls, such as those of the {@link QueryCache}.
+     * The clients in this library do; by default a client doesn't.
+     *
+     * @return true if results can be shared between calls
+     */
+    protected boolean canShareResults() {
+        return false;
+    }
+
+    /**
+     * Convert a future result to the type returned by this client, for results which are shared between calls.
+     * Only called if {@link #canShareResults()} returns true; by default it returns null.
+     *
+     * @param result the result, which other calls share
+     * @return the result as returned by this client
+     */
+    protected T fromFuture(final CompletableFuture<Result> result) {
+        return null;
+    }
+
+    private T ended(final RequestTrace trace, final T call) {
+        return trace.isEnabled() ? whenComplete(call, trace::end) : call;
+    }
+
+    private T sent(final RequestTrace trace, final Supplier<T> send) {
+        if (!trace.isEnabled()) {
+            return send.get();
+        }
+
+        final long start = System.nanoTime();
+        return whenComplete(send.get(), result -> trace.sent(start, result));
+    }
+
+    private URI signed(final RequestTrace trace, final Supplier<URI> signing) {
+        final long start = trace.now();
+        final URI uri = signing.get();
+        trace.phase(Kind.SIGN, start);
+        return uri;
+    }
+
+    /**
+     * @return the path with channel names replaced, so that requests can be grouped by endpoint
+     */
+    static String endpoint(final String path) {
+        if (!path.startsWith("/channels/")) {
+            return path;
+        }
+
+        final int end = path.indexOf('/', "/channels/".length());
+        return end < 0 ? "/channels/{channel}" : "/channels/{channel}" + path.substring(end);
+    }
+
+    /**
+     * Send a signed request with a transport, turning any failure to send it into a {@link Result}.
+     */
+    static CompletableFuture<Result> send(final Transport transport, final String method, final URI uri, final byte[] body) {
+        try {
+            return transport.send(new TransportRequest(method, uri, body))
+                    .exceptionally(PusherAbstract::fromTransportFailure);
+        } catch (final RuntimeException e) {
+            return CompletableFuture.completedFuture(fromTransportFailure(e));
+        }
+    }
+
+    private static Result fromTransportFailure(final Throwable t) {
+        final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof IOException) {
+            return Result.fromException((IOException)cause);
+        }
+        return Result.fromThrowable(cause);
+    }
+
+    /**
+     * Send a UTF-8 encoded body. Implementations which can send bytes directly should override this,
+     * by default the body is decoded and passed to {@link #doPost(URI, String)}.
+     *
+     * @param uri  the signed request URI
+     * @param body the UTF-8 encoded body
+     * @return the result of the call
+     */
+    protected T doPost(final URI uri, final byte[] body) {
+        return doPost(uri, new String(body, StandardCharsets.UTF_8));
+    }
+
     /**
      * If you wanted to send the HTTP API requests manually (e.g. using a different HTTP client), this method
      * will return a java.net.URI which includes all of the appropriate query parameters which sign the request.
@@ -443,7 +874,98 @@ public abstract class PusherAbstract<T> {
      * @return a URI object which includes the necessary query params for request authentication
      */
     public URI signedUri(final String method, final String path, final String body, final Map<String, String> parameters) {
-        return SignatureUtil.uri(method, scheme, host, path, body, key, secret, parameters);
+        return SignatureUtil.uri(method, scheme, host, path, body, key, signer, parameters);
+    }
+
+    /**
+     * @return a freshly signed URI for a request to list the app's channels, which is used to warm up connections
+     */
+    URI warmUpUri() {
+        return signedUri("GET", "/apps/" + appId + "/channels", null);
+    }
+
+    static WarmUpResult warmUpResult(final List<CompletableFuture<Result>> requests, final long start) {
+        int responded = 0;
+        for (final CompletableFuture<Result> request : requests) {
+            if (request.join().getHttpStatus() != null) {
+                responded++;
+            }
+        }
+        return new WarmUpResult(requests.size(), responded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /*
+     * CHANNEL QUERIES
+     */
+
+    /**
+     * Query the app's occupied channels, passing each channel in the response to the consumer. The response body
+     * is received whole and then parsed without building a tree of it. The consumer is only called if the query
+     * succeeds, and is called for every channel before the result is returned.
+     *
+     * @param prefixFilter only query channels whose names start with this, e.g. "presence-", or null for all channels
+     * @param info         the attributes to return for each channel, e.g. "user_count" (for presence channels only), or null
+     * @param consumer     called with each channel
+     * @return the result of the query, whose message is the response body
+     */
+    public T getChannels(final String prefixFilter, final List<String> info, final Consumer<ChannelInfo> consumer) {
+        Prerequisites.nonNull("consumer", consumer);
+
+        final Map<String, String> parameters = new HashMap<String, String>();
+        if (prefixFilter != null) {
+            parameters.put("filter_by_prefix", prefixFilter);
+        }
+        if (info != null && !info.isEmpty()) {
+            parameters.put("info", String.join(",", info));
+        }
+
+        return whenComplete(get("/channels", parameters), result -> {
+            if (result.getStatus() == Result.Status.SUCCESS) {
+                ChannelQueryParser.channels(new StringReader(result.getMessage()), consumer);
+            }
+        });
+    }
+
+    /**
+     * Query the state of a channel. The consumer is only called if the query succeeds.
+     *
+     * @param channel  the channel to query
+     * @param info     the attributes to return, e.g. "user_count" (for presence channels only), or null for just whether it's occupied
+     * @param consumer called with the channel
+     * @return the result of the query, whose message is the response body
+     */
+    public T getChannelInfo(final String channel, final List<String> info, final Consumer<ChannelInfo> consumer) {
+        Prerequisites.nonNull("consumer", consumer);
+        Prerequisites.isValidChannel(channel);
+
+        final Map<String, String> parameters = info == null || info.isEmpty()
+                ? Collections.<String, String>emptyMap()
+                : Collections.singletonMap("info", String.join(",", info));
+
+        return whenComplete(get("/channels/" + channel, parameters), result -> {
+            if (result.getStatus() == Result.Status.SUCCESS) {
+                consumer.accept(ChannelQueryParser.channel(new StringReader(result.getMessage()), channel));
+            }
+        });
+    }
+
+    /**
+     * Query the users in a presence channel, passing the id of each user in the response to the consumer. The
+     * consumer is only called if the query succeeds, and is called for every user before the result is returned.
+     *
+     * @param channel  the presence channel to query
+     * @param consumer called with the id of each user
+     * @return the result of the query, whose message is the response body
+     */
+    public T getPresenceUsers(final String channel, final Consumer<String> consumer) {
+        Prerequisites.nonNull("consumer", consumer);
+        Prerequisites.isValidChannel(channel);
+
+        return whenComplete(get("/channels/" + channel + "/users"), result -> {
+            if (result.getStatus() == Result.Status.SUCCESS) {
+                ChannelQueryParser.users(new StringReader(result.getMessage()), consumer);
+            }
+        });
     }
 
     /*
@@ -472,7 +994,7 @@ public abstract class PusherAbstract<T> {
             throw new IllegalArgumentException("Authentication is only applicable to private and presence channels");
         }
 
-        final String signature = SignatureUtil.sign(socketId + ":" + channel, secret);
+        final String signature = signer.sign(socketId + ":" + channel);
 
         final AuthData authData = new AuthData(key, signature);
 
@@ -510,10 +1032,44 @@ public abstract class PusherAbstract<T> {
         }
 
         final String channelData = BODY_SERIALISER.toJson(user);
-        final String signature = SignatureUtil.sign(socketId + ":" + channel + ":" + channelData, secret);
+        final String signature = signer.sign(socketId + ":" + channel + ":" + channelData);
         return BODY_SERIALISER.toJson(new AuthData(key, signature, channelData));
     }
 
+    /**
+     * Generate authentication responses to authorise a user on several presence channels at once, for example
+     * when a client reconnects and resubscribes to all its channels.
+     * <p>
+     * The return value is a JSON object with a member for each channel, in the form
+     * <pre>
+     * {"presence-a":{"status":200,"data":{"auth":"...","channel_data":"..."}},"presence-b":...}
+     * </pre>
+     * where each {@code data} is the response {@link #authenticate(String, String, PresenceUser)} would give for
+     * that channel. The user is serialised only once for all the channels.
+     *
+     * @param socketId the socket id of the connection to authenticate
+     * @param channels the names of the presence channels which the socket id should be authorised to join
+     * @param user     a {@link PresenceUser} object which represents the channel data to be associated with the user
+     * @return the authentication responses, suitable for return to the requesting client
+     */
+    public String authenticate(final String socketId, final List<String> channels, final PresenceUser user) {
+        Prerequisites.nonNull("socketId", socketId);
+        Prerequisites.nonNull("channels", channels);
+        Prerequisites.nonNull("user", user);
+        Prerequisites.noNullMembers("channels", channels);
+        Prerequisites.areValidChannels(channels);
+        Prerequisites.isValidSocketId(socketId);
+
+        for (final String channel : channels) {
+            if (!channel.startsWith("presence-")) {
+                throw new IllegalArgumentException("Channel [" + channel + "] is not a presence channel, only presence channels can be authenticated together");
+            }
+        }
+
+        final String channelData = BODY_SERIALISER.toJson(user);
+        return new String(JsonBodyWriter.presenceAuth(key, socketId, channels, channelData, signer), StandardCharsets.UTF_8);
+    }
+
     /*
      * WEBHOOK VALIDATION
      */
@@ -532,7 +1088,7 @@ public abstract class PusherAbstract<T> {
             return Validity.SIGNED_WITH_WRONG_KEY;
         }
 
-        final String recalculatedSignature = SignatureUtil.sign(body, secret);
+        final String recalculatedSignature = signer.sign(body);
         return xPusherSignatureHeader.trim().equals(recalculatedSignature) ? Validity.VALID : Validity.INVALID;
     }
 
@@ -549,12 +1105,26 @@ public abstract class PusherAbstract<T> {
         throw PusherException.encryptionMasterKeyRequired();
     }
 
-    private String encryptPayload(final String encryptedChannel, final String payload) {
-        final EncryptedMessage encryptedMsg = crypto.encrypt(
-            encryptedChannel,
-            payload.getBytes(StandardCharsets.UTF_8)
-        );
+    /**
+     * @return the serialised and encrypted data, as a {@link SealedMessage}, or as an {@link EncryptedMessage}
+     *         if the CryptoUtil has been replaced by a subclass
+     */
+    private Object encryptPayload(final RequestTrace trace, final String encryptedChannel, final Object data) {
+        if (crypto.getClass() != CryptoUtil.class) {
+            final byte[] payload = serialiseToUtf8(trace, data);
+            final long start = trace.now();
+            final EncryptedMessage message = crypto.encrypt(encryptedChannel, payload);
+            trace.phase(Kind.ENCRYPT, start);
+            return message;
+        }
+
+        // Serialised into a buffer with room for it to be encrypted in place
+        final byte[] buffer = serialiseToUtf8(trace, data, SecretBox.MESSAGE_OFFSET);
+        final int messageLength = buffer.length - SecretBox.MESSAGE_OFFSET;
 
-        return BODY_SERIALISER.toJson(encryptedMsg);
+        final long start = trace.now();
+        final byte[] nonce = crypto.encryptInPlace(encryptedChannel, buffer, messageLength);
+        trace.phase(Kind.ENCRYPT, start);
+        return new SealedMessage(nonce, buffer, SecretBox.CIPHERTEXT_OFFSET, CryptoUtil.ciphertextLength(messageLength));
     }
 }
@@ -1,15 +1,19 @@
 package com.pusher.rest;
 
 import com.pusher.rest.data.Result;
-import org.asynchttpclient.AsyncHttpClient;
+import com.pusher.rest.data.WarmUpResult;
+import com.pusher.rest.transport.AsyncHttpClientTransport;
+import com.pusher.rest.transport.Transport;
 import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 import org.asynchttpclient.Request;
-import org.asynchttpclient.RequestBuilder;
-import org.asynchttpclient.util.HttpConstants;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.asynchttpclient.Dsl.asyncHttpClient;
@@ -51,7 +55,9 @@ import static org.asynchttpclient.Dsl.config;
  */
 public class PusherAsync extends PusherAbstract<CompletableFuture<Result>> implements AutoCloseable {
 
-    private AsyncHttpClient client;
+    private AsyncHttpClientTransport httpClientTransport;
+    private Transport transport;
+    private RequestQueue requestQueue;
 
     /**
      * Construct an instance of the Pusher object through which you may interact with the Pusher API.
@@ -117,12 +123,37 @@ public class PusherAsync extends PusherAbstract<CompletableFuture<Result>> imple
      */
     public void configureHttpClient(final DefaultAsyncHttpClientConfig.Builder builder) {
         try {
-            close();
+            closeHttpClient();
         } catch (final Exception e) {
             // Not a lot useful we can do here
         }
 
-        this.client = asyncHttpClient(builder);
+        this.httpClientTransport = new AsyncHttpClientTransport(asyncHttpClient(builder));
+    }
+
+    /**
+     * Send requests with the given transport rather than AsyncHttpClient, for example to use another
+     * HTTP library or to stand in for the API in tests. The client set by
+     * {@link #configureHttpClient(DefaultAsyncHttpClientConfig.Builder)} is then unused. The transport is
+     * closed when this client is.
+     * <p>
+     * Default: null, requests are sent with AsyncHttpClient
+     *
+     * @param transport the transport to send requests with, or null to use AsyncHttpClient
+     */
+    public void setTransport(final Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Limit the number of requests in flight at once, queueing further requests until a slot is free.
+     * <p>
+     * Default: null, requests are sent as soon as they are made
+     *
+     * @param requestQueue the queue to send requests through, or null to send them immediately
+     */
+    public void setRequestQueue(final RequestQueue requestQueue) {
+        this.requestQueue = requestQueue;
     }
 
     /*
@@ -131,37 +162,83 @@ public class PusherAsync extends PusherAbstract<CompletableFuture<Result>> imple
 
     @Override
     protected CompletableFuture<Result> doGet(final URI uri) {
-        final Request request = new RequestBuilder(HttpConstants.Methods.GET)
-            .setUrl(uri.toString())
-            .build();
-
-        return httpCall(request);
+        return send(transport(), "GET", uri, null);
     }
 
     @Override
     protected CompletableFuture<Result> doPost(final URI uri, final String body) {
-        final Request request = new RequestBuilder(HttpConstants.Methods.POST)
-                .setUrl(uri.toString())
-                .setBody(body)
-                .addHeader("Content-Type", "application/json")
-                .build();
+        return doPost(uri, body.getBytes(UTF_8));
+    }
+
+    @Override
+    protected CompletableFuture<Result> doPost(final URI uri, final byte[] body) {
+        return send(transport(), "POST", uri, body);
+    }
+
+    private Transport transport() {
+        final Transport transport = this.transport;
+        return transport != null ? transport : httpClientTransport;
+    }
+
+    /**
+     * Open connections to the API ahead of the first requests, so that they don't pay for the DNS lookup and the
+     * TCP and TLS handshakes. Makes the given number of concurrent signed requests for the channel list.
+     * <p>
+     * The requests are not retried, or subject to the other request policies.
+     *
+     * @param connections the number of connections to open
+     * @return how many of the requests got a response, and how long warming up took, once they have all completed
+     */
+    public CompletableFuture<WarmUpResult> warmUp(final int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be at least 1");
+        }
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<Result>> requests = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            requests.add(doGet(warmUpUri()));
+        }
 
-        return httpCall(request);
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> warmUpResult(requests, start));
+    }
+
+    @Override
+    protected CompletableFuture<Result> dispatch(final Supplier<CompletableFuture<Result>> request, final int messages) {
+        return AsyncDispatcher.dispatch(this, requestQueue, request, messages);
+    }
+
+    @Override
+    protected CompletableFuture<Result> whenComplete(final CompletableFuture<Result> call, final Consumer<Result> listener) {
+        return AsyncDispatcher.whenComplete(call, listener);
+    }
+
+    @Override
+    protected boolean canShareResults() {
+        return true;
+    }
+
+    @Override
+    protected CompletableFuture<Result> fromFuture(final CompletableFuture<Result> result) {
+        return result.copy();
     }
 
     CompletableFuture<Result> httpCall(final Request request) {
-        return client
-                .prepareRequest(request)
-                .execute()
-                .toCompletableFuture()
-                .thenApply(response -> Result.fromHttpCode(response.getStatusCode(), response.getResponseBody(UTF_8)))
-                .exceptionally(Result::fromThrowable);
+        return httpClientTransport.execute(request);
     }
 
     @Override
-    public void close() throws Exception {
-        if (client != null && !client.isClosed()) {
-            client.close();
+    public void close() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+        closeHttpClient();
+    }
+
+    private void closeHttpClient() throws IOException {
+        if (httpClientTransport != null) {
+            httpClientTransport.close();
         }
     }
 
@@ -0,0 +1,210 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Result;
+import com.pusher.rest.transport.JdkHttpTransport;
+import com.pusher.rest.transport.Transport;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A library for interacting with the Pusher HTTP API asynchronously, using the JDK's own
+ * {@link java.net.http.HttpClient} rather than AsyncHttpClient and Netty.
+ * <p>
+ * HTTP/2 is used where the API supports it, which it does over HTTPS (see {@link #setEncrypted(boolean)}).
+ * Concurrent requests are then multiplexed over a single connection, rather than each needing its own.
+ * <p>
+ * The API is the same as that of {@link PusherAsync}:
+ * <pre>
+ * PusherHttp2 pusher = new PusherHttp2(APP_ID, KEY, SECRET);
+ * pusher.setEncrypted(true);
+ *
+ * CompletableFuture&lt;Result&gt; futureTriggerResult = pusher.trigger("my-channel", "my-eventname", myPojoForSerialisation);
+ * </pre>
+ *
+ * See {@link Pusher} for the synchronous implementation.
+ */
+public class PusherHttp2 extends PusherAbstract<CompletableFuture<Result>> implements AutoCloseable {
+
+    private int requestTimeout = 4000; // milliseconds
+
+    private JdkHttpTransport httpClientTransport;
+    private Transport transport;
+    private RequestQueue requestQueue;
+
+    /**
+     * Construct an instance of the Pusher object through which you may interact with the Pusher API.
+     * <p>
+     * The parameters to use are found on your dashboard at https://app.pusher.com and are specific per App.
+     * <p>
+     *
+     * @param appId  The ID of the App you will to interact with.
+     * @param key    The App Key, the same key you give to websocket clients to identify your app when they connect to Pusher.
+     * @param secret The App Secret. Used to sign requests to the API, this should be treated as sensitive and not distributed.
+     */
+    public PusherHttp2(final String appId, final String key, final String secret) {
+        super(appId, key, secret);
+        configureHttpClient(defaultHttpClientBuilder());
+    }
+
+    /**
+     * Construct an instance of the Pusher object through which you may interact with the Pusher API.
+     * <p>
+     * The parameters to use are found on your dashboard at https://app.pusher.com and are specific per App.
+     * <p>
+     *
+     * @param appId  The ID of the App you will to interact with.
+     * @param key    The App Key, the same key you give to websocket clients to identify your app when they connect to Pusher.
+     * @param secret The App Secret. Used to sign requests to the API, this should be treated as sensitive and not distributed.
+     * @param encryptionMasterKeyBase64 32 byte key, base64 encoded. This key, along with the channel name, are used to derive per-channel encryption keys.
+     */
+    public PusherHttp2(final String appId, final String key, final String secret, final String encryptionMasterKeyBase64) {
+        super(appId, key, secret, encryptionMasterKeyBase64);
+        configureHttpClient(defaultHttpClientBuilder());
+    }
+
+    public PusherHttp2(final String url) {
+        super(url);
+        configureHttpClient(defaultHttpClientBuilder());
+    }
+
+    /*
+     * CONFIG
+     */
+
+    /**
+     * Default: 4000
+     *
+     * @param requestTimeout the request timeout in milliseconds
+     */
+    public void setRequestTimeout(final int requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        httpClientTransport.setRequestTimeout(requestTimeout);
+    }
+
+    /**
+     * Returns an HttpClient.Builder with the settings used by default applied: HTTP/2 preferred,
+     * and redirects not followed. You may apply further configuration (for example a proxy or an
+     * executor) and then call {@link #configureHttpClient(HttpClient.Builder)}.
+     *
+     * @return an {@link java.net.http.HttpClient.Builder} with the default settings applied
+     */
+    public static HttpClient.Builder defaultHttpClientBuilder() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(4000));
+    }
+
+    /**
+     * Configure the HttpClient instance which will be used for making calls to the Pusher API.
+     *
+     * @see #defaultHttpClientBuilder()
+     *
+     * @param builder an {@link java.net.http.HttpClient.Builder} with which to configure the internal HTTP client
+     */
+    public void configureHttpClient(final HttpClient.Builder builder) {
+        try {
+            closeHttpClient();
+        } catch (final Exception e) {
+            // Not a lot useful we can do here
+        }
+
+        this.httpClientTransport = new JdkHttpTransport(builder.build());
+        httpClientTransport.setRequestTimeout(requestTimeout);
+    }
+
+    /**
+     * Send requests with the given transport rather than the JDK's HttpClient, for example to use another
+     * HTTP library or to stand in for the API in tests. The client set by
+     * {@link #configureHttpClient(HttpClient.Builder)} is then unused. The transport is closed when this client is.
+     * <p>
+     * Default: null, requests are sent with the JDK's HttpClient
+     *
+     * @param transport the transport to send requests with, or null to use the JDK's HttpClient
+     */
+    public void setTransport(final Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Limit the number of requests in flight at once, queueing further requests until a slot is free.
+     * <p>
+     * Default: null, requests are sent as soon as they are made
+     *
+     * @param requestQueue the queue to send requests through, or null to send them immediately
+     */
+    public void setRequestQueue(final RequestQueue requestQueue) {
+        this.requestQueue = requestQueue;
+    }
+
+    /*
+     * REST
+     */
+
+    @Override
+    protected CompletableFuture<Result> doGet(final URI uri) {
+        return send(transport(), "GET", uri, null);
+    }
+
+    @Override
+    protected CompletableFuture<Result> doPost(final URI uri, final String body) {
+        return doPost(uri, body.getBytes(UTF_8));
+    }
+
+    @Override
+    protected CompletableFuture<Result> doPost(final URI uri, final byte[] body) {
+        return send(transport(), "POST", uri, body);
+    }
+
+    private Transport transport() {
+        final Transport transport = this.transport;
+        return transport != null ? transport : httpClientTransport;
+    }
+
+    @Override
+    protected CompletableFuture<Result> dispatch(final Supplier<CompletableFuture<Result>> request, final int messages) {
+        return AsyncDispatcher.dispatch(this, requestQueue, request, messages);
+    }
+
+    @Override
+    protected CompletableFuture<Result> whenComplete(final CompletableFuture<Result> call, final Consumer<Result> listener) {
+        return AsyncDispatcher.whenComplete(call, listener);
+    }
+
+    @Override
+    protected boolean canShareResults() {
+        return true;
+    }
+
+    @Override
+    protected CompletableFuture<Result> fromFuture(final CompletableFuture<Result> result) {
+        return result.copy();
+    }
+
+    CompletableFuture<Result> httpCall(final HttpRequest request) {
+        return httpClientTransport.execute(request);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+        closeHttpClient();
+    }
+
+    private void closeHttpClient() throws IOException {
+        if (httpClientTransport != null) {
+            httpClientTransport.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.pusher.rest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.pusher.rest.data.Result;
+
+/**
+ * A read-through cache of the results of channel queries, that is GET requests to {@code /channels} and the
+ * paths below it, including the typed queries such as {@link PusherAbstract#getChannelInfo}.
+ * <p>
+ * Successful results are kept for the time to live; failures aren't cached. Identical queries made while one
+ * is already in flight wait for its result rather than each being sent ("single flight"), however many threads
+ * make them. Queries are identical if they have the same path and parameters.
+ * <p>
+ * Expired entries are evicted as new results are added, and once the cache holds the maximum number of
+ * entries the oldest are evicted to make room. Instances are threadsafe, and may be shared between clients
+ * for the same app.
+ * <p>
+ * e.g.
+ * <pre>
+ * pusher.setQueryCache(new QueryCache(1000, 10000));  // 1s time to live, up to 10000 queries
+ * </pre>
+ *
+ * @see PusherAbstract#setQueryCache(QueryCache)
+ */
+public class QueryCache {
+
+    private final long timeToLive;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentMap<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Result>>();
+    // Entries in the order they were added, which with a fixed time to live is also the order they expire in
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<Entry>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param timeToLive the milliseconds for which a successful result is reused
+     * @param maxEntries the most results to keep
+     */
+    public QueryCache(final long timeToLive, final int maxEntries) {
+        this(timeToLive, maxEntries, System::nanoTime);
+    }
+
+    QueryCache(final long timeToLive, final int maxEntries, final LongSupplier nanoClock) {
+        if (timeToLive < 1) {
+            throw new IllegalArgumentException("timeToLive must be at least 1");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries sent to the API
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of queries which waited for an identical query already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of results currently held, including any which have expired but not been evicted
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Discard all cached results. Queries in flight are unaffected.
+     */
+    public void clear() {
+        entries.clear();
+        order.clear();
+    }
+
+    static boolean isCacheable(final String path) {
+        return path.equals("/channels") || path.startsWith("/channels/");
+    }
+
+    // The path and the sorted, URL encoded parameters, so that distinct queries never share a key
+    static String key(final String path, final Map<String, String> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return path;
+        }
+
+        final StringBuilder sb = new StringBuilder(path);
+        char separator = '?';
+        for (final Map.Entry<String, String> e : new TreeMap<String, String>(parameters).entrySet()) {
+            sb.append(separator).append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8));
+            if (e.getValue() != null) {
+                sb.append('=').append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+            }
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Look up a query, or claim it for the caller to make.
+     *
+     * @param key     identifies the query, see {@link #key(String, Map)}
+     * @param pending to be completed by the caller with the result of the query, if it's the one to make it
+     * @return the cached result or the query in flight, or null if the caller must make the query and complete
+     *         {@code pending} with its result
+     */
+    CompletableFuture<Result> lookup(final String key, final CompletableFuture<Result> pending) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.expires - nanoClock.getAsLong() > 0) {
+            hits.increment();
+            return entry.result;
+        }
+
+        final CompletableFuture<Result> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        misses.increment();
+        pending.whenComplete((result, t) -> {
+            // Cache the result before the query stops being in flight, so identical queries always find one or the other
+            if (result != null && result.getStatus() == Result.Status.SUCCESS) {
+                put(key, pending);
+            }
+            inFlight.remove(key, pending);
+        });
+        return null;
+    }
+
+    private void put(final String key, final CompletableFuture<Result> result) {
+        final long now = nanoClock.getAsLong();
+        final Entry entry = new Entry(key, result, now + timeToLive);
+        entries.put(key, entry);
+        order.add(entry);
+
+        // Evict from the oldest end: expired entries, those since replaced, then any beyond the maximum
+        Entry oldest;
+        while ((oldest = order.peek()) != null && oldest != entry
+                && (oldest.expires - now <= 0 || entries.get(oldest.key) != oldest || entries.size() > maxEntries)) {
+            if (order.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final CompletableFuture<Result> result;
+        private final long expires;
+
+        private Entry(final String key, final CompletableFuture<Result> result, final long expires) {
+            this.key = key;
+            this.result = result;
+            this.expires = expires;
+        }
+    }
+}
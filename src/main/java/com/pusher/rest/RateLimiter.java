@@ -0,0 +1,158 @@
+package com.pusher.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.pusher.rest.data.Result;
+
+/**
+ * Limits the rate at which messages are published, so that bursts are smoothed out on the client rather than
+ * exceeding the app's message quota and failing with {@link Result.Status#MESSAGE_QUOTA_EXCEEDED}.
+ * <p>
+ * A token bucket holds up to {@code burst} messages and is refilled at {@code messagesPerSecond}. Each event
+ * published to a channel takes one token, so triggering an event on three channels takes three, as does a batch
+ * of three events. Queries are not limited.
+ * <p>
+ * When there are not enough tokens for a request, the {@link Mode} decides whether it waits for them or
+ * fails with {@link Result.Status#RATE_LIMITED} without being sent. Waiting requests are sent in the order
+ * they arrived.
+ * <p>
+ * If the API reports that the quota has been exceeded anyway, the rate is halved, and recovers step by step
+ * with each successful request. Each attempt made under a {@link RetryPolicy} takes its own tokens.
+ * <p>
+ * Instances are threadsafe, and may be shared between clients publishing to the same app.
+ *
+ * @see PusherAbstract#setRateLimiter(RateLimiter)
+ */
+public class RateLimiter {
+
+    public enum Mode {
+        /** Wait as long as it takes for tokens to become available */
+        BLOCK,
+        /** Wait up to the maximum wait, and fail if tokens would not become available by then */
+        WAIT,
+        /** Fail immediately if there are not enough tokens */
+        FAIL_FAST
+    }
+
+    static final String LIMITED_MESSAGE = "Request not sent, the client's message rate limit was reached";
+
+    // The rate never falls below this proportion of the configured rate while backing off
+    private static final double MIN_RATE_FRACTION = 1.0 / 32;
+    // The proportion of the configured rate regained with each successful request after backing off
+    private static final double RECOVERY_STEP = 0.05;
+
+    private final LongSupplier nanoClock;
+    private final double messagesPerSecond;
+    private final int burst;
+
+    private Mode mode = Mode.BLOCK;
+    private long maxWait = 1000;
+
+    private double rate;
+    // Negative while requests are waiting for tokens which have already been promised to them
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param messagesPerSecond the sustained rate at which messages may be published
+     * @param burst             the number of messages which may be published at once after a quiet period
+     */
+    public RateLimiter(final double messagesPerSecond, final int burst) {
+        this(messagesPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimiter(final double messagesPerSecond, final int burst, final LongSupplier nanoClock) {
+        if (!(messagesPerSecond > 0)) {
+            throw new IllegalArgumentException("messagesPerSecond must be greater than 0");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1");
+        }
+
+        this.nanoClock = nanoClock;
+        this.messagesPerSecond = messagesPerSecond;
+        this.burst = burst;
+        this.rate = messagesPerSecond;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Default: {@link Mode#BLOCK}
+     *
+     * @param mode what to do with a request when there are not enough tokens for it
+     */
+    public synchronized void setMode(final Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * Default: 1000
+     *
+     * @param maxWait the longest a request waits for tokens in milliseconds, in {@link Mode#WAIT}
+     */
+    public synchronized void setMaxWait(final long maxWait) {
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+        }
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @return the rate currently being applied in messages per second, which is lower than the configured
+     *         rate while backing off after the quota was exceeded
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Take tokens for a request, possibly in advance of them becoming available.
+     *
+     * @param messages the number of messages the request publishes
+     * @return the nanoseconds to wait before sending the request, or -1 if it must not be sent
+     */
+    synchronized long reserve(final int messages) {
+        refill();
+
+        if (tokens >= messages) {
+            tokens -= messages;
+            return 0;
+        }
+
+        final long wait = (long)Math.ceil((messages - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        if (mode == Mode.FAIL_FAST || mode == Mode.WAIT && wait > TimeUnit.MILLISECONDS.toNanos(maxWait)) {
+            return -1;
+        }
+
+        tokens -= messages;
+        return wait;
+    }
+
+    /**
+     * Adjust the rate to the outcome of a request which was sent.
+     *
+     * @param status the status of the request
+     */
+    synchronized void record(final Result.Status status) {
+        if (status == Result.Status.MESSAGE_QUOTA_EXCEEDED) {
+            refill();
+            rate = Math.max(messagesPerSecond * MIN_RATE_FRACTION, rate / 2);
+            // Whatever was saved up was evidently more than the quota allows
+            tokens = Math.min(tokens, 0);
+        } else if (status == Result.Status.SUCCESS && rate < messagesPerSecond) {
+            refill();
+            rate = Math.min(messagesPerSecond, rate + messagesPerSecond * RECOVERY_STEP);
+        }
+    }
+
+    private void refill() {
+        final long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,244 @@
+package com.pusher.rest;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.pusher.rest.data.Result;
+
+/**
+ * Limits the number of requests {@link PusherAsync} has in flight at once, holding further requests in a
+ * bounded queue until a slot is free, so that a burst of calls can't build up an unbounded number of
+ * connections and buffers.
+ * <p>
+ * When the queue is full, the {@link OverflowPolicy} decides what happens to a new request. A request
+ * which is not sent completes with {@link Result.Status#QUEUE_FULL}.
+ * <p>
+ * Each attempt made under a {@link RetryPolicy} is queued separately. Instances are threadsafe, and may be
+ * shared between clients to limit their requests together.
+ *
+ * @see PusherAsync#setRequestQueue(RequestQueue)
+ */
+public class RequestQueue {
+
+    public enum OverflowPolicy {
+        /** Complete the new request without sending it */
+        REJECT,
+        /**
+         * Block the calling thread until there is room in the queue. Don't use this when triggering
+         * from the client's own callbacks, which would then wait on themselves.
+         */
+        BLOCK,
+        /** Complete the request which has been queued longest without sending it, and queue the new one */
+        DROP_OLDEST
+    }
+
+    static final String FULL_MESSAGE = "Request not sent, the request queue is full";
+    static final String DROPPED_MESSAGE = "Request not sent, dropped from the full request queue";
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    private long dequeued;
+    private long totalWait;
+    private long maxWait;
+    private long rejected;
+    private long dropped;
+
+    /**
+     * @param maxInFlight the most requests which may be in flight at once
+     * @param maxQueued   the most requests which may wait for a free slot, or 0 to never queue
+     */
+    public RequestQueue(final int maxInFlight, final int maxQueued) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Default: {@link OverflowPolicy#REJECT}
+     *
+     * @param overflowPolicy what to do with a new request when the queue is full
+     */
+    public synchronized void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @return the number of requests waiting for a free slot
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the mean time in milliseconds spent in the queue by requests which had to wait for a slot
+     */
+    public synchronized double getAverageQueueWait() {
+        return dequeued == 0 ? 0 : (double)totalWait / dequeued / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the longest time in milliseconds any request has spent in the queue
+     */
+    public synchronized long getMaxQueueWait() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWait);
+    }
+
+    /**
+     * @return the number of requests not sent because the queue was full when they were made
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * @return the number of queued requests dropped to make room for newer ones
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Send a request as soon as there is a free slot.
+     *
+     * @param request sends the request
+     * @return the result of the request, once it has been sent and completed, or a result saying it was not sent
+     */
+    CompletableFuture<Result> submit(final Supplier<CompletableFuture<Result>> request) {
+        final Queued submitted = new Queued(request);
+        final Queued evicted;
+
+        synchronized (this) {
+            while (true) {
+                if (inFlight < maxInFlight && queue.isEmpty()) {
+                    inFlight++;
+                    evicted = null;
+                    break;
+                }
+                if (queue.size() < maxQueued) {
+                    queue.add(submitted);
+                    return submitted.result;
+                }
+
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    try {
+                        wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        rejected++;
+                        return CompletableFuture.completedFuture(Result.fromStatus(Result.Status.QUEUE_FULL, FULL_MESSAGE));
+                    }
+                } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST && !queue.isEmpty()) {
+                    evicted = queue.poll();
+                    dropped++;
+                    queue.add(submitted);
+                    break;
+                } else {
+                    rejected++;
+                    return CompletableFuture.completedFuture(Result.fromStatus(Result.Status.QUEUE_FULL, FULL_MESSAGE));
+                }
+            }
+        }
+
+        if (evicted != null) {
+            evicted.result.complete(Result.fromStatus(Result.Status.QUEUE_FULL, DROPPED_MESSAGE));
+        } else {
+            run(submitted);
+        }
+        return submitted.result;
+    }
+
+    /**
+     * Send a request which holds a slot, then the queued requests which take over the slot after it.
+     * Requests which complete straight away are handled in a loop rather than recursively, so that
+     * a long queue of them can't overflow the stack.
+     */
+    private void run(final Queued first) {
+        Queued current = first;
+        while (current != null) {
+            CompletableFuture<Result> result;
+            try {
+                result = current.request.get();
+            } catch (final RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+
+            if (!result.isDone()) {
+                final Queued sent = current;
+                result.whenComplete((r, t) -> {
+                    final Queued next = release();
+                    complete(sent, r, t);
+                    run(next);
+                });
+                return;
+            }
+
+            // Free the slot before completing, so it is seen as free by whatever the caller does next
+            final Queued next = release();
+            final Queued sent = current;
+            result.whenComplete((r, t) -> complete(sent, r, t));
+            current = next;
+        }
+    }
+
+    private static void complete(final Queued queued, final Result r, final Throwable t) {
+        if (t != null) {
+            queued.result.completeExceptionally(t);
+        } else {
+            queued.result.complete(r);
+        }
+    }
+
+    /**
+     * Hand the slot of a completed request to the next queued request, or free it.
+     *
+     * @return the request to run next, or null if the queue was empty
+     */
+    private synchronized Queued release() {
+        final Queued next = queue.poll();
+        if (next == null) {
+            inFlight--;
+        } else {
+            final long wait = System.nanoTime() - next.queuedAt;
+            dequeued++;
+            totalWait += wait;
+            maxWait = Math.max(maxWait, wait);
+        }
+
+        notifyAll();
+        return next;
+    }
+
+    private static final class Queued {
+        private final Supplier<CompletableFuture<Result>> request;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        private Queued(final Supplier<CompletableFuture<Result>> request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Result;
+import com.pusher.rest.metrics.NoOpRequestMetrics;
+import com.pusher.rest.metrics.RequestMetrics;
+import com.pusher.rest.tracing.Span;
+import com.pusher.rest.tracing.Span.Kind;
+import com.pusher.rest.tracing.TraceListener;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the phases of one request, reporting them to the client's {@link RequestMetrics} and
+ * {@link TraceListener}. When neither is set, {@link #NONE} is used and nothing is timed or allocated.
+ * <p>
+ * Phases may be timed from several threads, for batches encoded in parallel and for retries.
+ */
+final class RequestTrace {
+
+    static final RequestTrace NONE = new RequestTrace(null, NoOpRequestMetrics.INSTANCE, null, 0);
+
+    private static final AtomicLong TRACE_IDS = new AtomicLong();
+    private static final int ROOT_SPAN_ID = 1;
+
+    private final String endpoint;
+    private final RequestMetrics metrics;
+    private final TraceListener listener;
+    private final int channels;
+    private final long traceId;
+    private final long start;
+    private final AtomicInteger spanIds = new AtomicInteger(ROOT_SPAN_ID);
+
+    private volatile long bodyBytes = -1;
+    private volatile long dispatched;
+
+    private RequestTrace(final String endpoint, final RequestMetrics metrics, final TraceListener listener, final int channels) {
+        this.endpoint = endpoint;
+        this.metrics = metrics;
+        this.listener = listener;
+        this.channels = channels;
+        this.traceId = listener == null ? 0 : TRACE_IDS.incrementAndGet();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @param endpoint the endpoint being requested, see {@link PusherAbstract#endpoint(String)}
+     * @param channels the number of channels published to, or 0
+     * @return a trace for the request, or {@link #NONE} if there's nothing to report to
+     */
+    static RequestTrace start(final String endpoint, final RequestMetrics metrics, final TraceListener listener, final int channels) {
+        if (listener == null && metrics == NoOpRequestMetrics.INSTANCE) {
+            return NONE;
+        }
+        return new RequestTrace(endpoint, metrics, listener, channels);
+    }
+
+    boolean isEnabled() {
+        return this != NONE;
+    }
+
+    /**
+     * @return the time at which a phase starting now started, or 0 if not tracing
+     */
+    long now() {
+        return this == NONE ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Record a phase, other than sending, which started at the given time and has just ended.
+     */
+    void phase(final Kind kind, final long phaseStart) {
+        if (this == NONE) {
+            return;
+        }
+
+        final long duration = System.nanoTime() - phaseStart;
+        switch (kind) {
+            case SERIALISE:
+                metrics.recordTime(endpoint, RequestMetrics.Phase.SERIALISE, duration);
+                break;
+            case ENCRYPT:
+                metrics.recordTime(endpoint, RequestMetrics.Phase.ENCRYPT, duration);
+                break;
+            case SIGN:
+                metrics.recordTime(endpoint, RequestMetrics.Phase.SIGN, duration);
+                break;
+            default:
+                break;
+        }
+        emit(kind, phaseStart, duration, null);
+    }
+
+    /**
+     * Called once the request body is ready and the request is about to be dispatched.
+     */
+    void dispatching(final long bodyBytes) {
+        if (this == NONE) {
+            return;
+        }
+
+        this.bodyBytes = bodyBytes;
+        this.dispatched = now();
+    }
+
+    /**
+     * Record an attempt to send the request, which started at the given time and has just completed.
+     */
+    void sent(final long sendStart, final Result result) {
+        if (listener != null) {
+            emit(Kind.SEND, sendStart, System.nanoTime() - sendStart, result.getStatus());
+        }
+    }
+
+    /**
+     * Record the end of the request, with its final result.
+     */
+    void end(final Result result) {
+        if (this == NONE) {
+            return;
+        }
+
+        final long end = System.nanoTime();
+        final long bodyBytes = this.bodyBytes;
+        metrics.recordRequest(endpoint, result.getStatus(), end - dispatched, Math.max(bodyBytes, 0));
+        if (listener != null) {
+            listener.onSpan(new Span(traceId, ROOT_SPAN_ID, 0, Kind.REQUEST, endpoint, start, end - start, channels, bodyBytes, result.getStatus()));
+        }
+    }
+
+    private void emit(final Kind kind, final long spanStart, final long duration, final Result.Status status) {
+        if (listener != null) {
+            listener.onSpan(new Span(traceId, spanIds.incrementAndGet(), ROOT_SPAN_ID, kind, endpoint, spanStart, duration, channels, bodyBytes, status));
+        }
+    }
+}
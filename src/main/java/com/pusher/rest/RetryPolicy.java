@@ -0,0 +1,167 @@
+package com.pusher.rest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.pusher.rest.data.Result;
+
+/**
+ * Decides whether, and after how long, a failed request should be retried.
+ * <p>
+ * Requests are retried when their {@link Result.Status#shouldRetry()} is true, with exponential backoff and jitter,
+ * up to a maximum number of retries and within a deadline for the request as a whole. A retry budget limits retries
+ * to a proportion of all requests made, so that an outage doesn't multiply the load on the API.
+ * <p>
+ * Each attempt is signed afresh, as the signature includes a timestamp.
+ * <p>
+ * A policy may be shared between clients, in which case they share its retry budget. Instances are threadsafe,
+ * but should not be reconfigured while in use.
+ *
+ * @see PusherAbstract#setRetryPolicy(RetryPolicy)
+ */
+public class RetryPolicy {
+
+    private int maxRetries = 3;
+    private long initialBackoff = 100;
+    private long maxBackoff = 2000;
+    private double jitter = 0.5;
+    private long deadline = 10000;
+    private double budgetRatio = 0.2;
+    private int budgetCapacity = 10;
+
+    // Retries currently allowed by the budget; each request adds budgetRatio, each retry takes one
+    private double budget = budgetCapacity;
+
+    /**
+     * Default: 3
+     *
+     * @param maxRetries the maximum number of times to retry a request, after the first attempt
+     */
+    public void setMaxRetries(final int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * The backoff before the first retry, which doubles for each retry after that up to the maximum backoff.
+     * <p>
+     * Default: 100
+     *
+     * @param initialBackoff the backoff in milliseconds
+     */
+    public void setInitialBackoff(final long initialBackoff) {
+        if (initialBackoff < 0) {
+            throw new IllegalArgumentException("initialBackoff must not be negative");
+        }
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Default: 2000
+     *
+     * @param maxBackoff the maximum backoff between attempts in milliseconds
+     */
+    public void setMaxBackoff(final long maxBackoff) {
+        if (maxBackoff < 0) {
+            throw new IllegalArgumentException("maxBackoff must not be negative");
+        }
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * The proportion of each backoff which is randomised, so that clients which failed together don't all retry
+     * together. With a jitter of 0.5, a backoff of 100ms becomes a random wait of between 50 and 100ms.
+     * <p>
+     * Default: 0.5
+     *
+     * @param jitter the proportion of the backoff to randomise, between 0 and 1
+     */
+    public void setJitter(final double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        this.jitter = jitter;
+    }
+
+    /**
+     * The time from the first attempt after which a request is no longer retried. A retry is not made if its backoff
+     * would take it past the deadline.
+     * <p>
+     * Default: 10000
+     *
+     * @param deadline the deadline in milliseconds
+     */
+    public void setDeadline(final long deadline) {
+        if (deadline < 0) {
+            throw new IllegalArgumentException("deadline must not be negative");
+        }
+        this.deadline = deadline;
+    }
+
+    /**
+     * Limit retries to a proportion of requests. Each request adds {@code ratio} to the budget, up to
+     * {@code capacity}, and each retry takes one from it. When the budget is exhausted, failed requests
+     * are not retried until enough new requests have been made.
+     * <p>
+     * Default: a ratio of 0.2 and a capacity of 10
+     *
+     * @param ratio    the retries earned per request
+     * @param capacity the most retries the budget can hold, which is also its starting value
+     */
+    public void setRetryBudget(final double ratio, final int capacity) {
+        if (ratio < 0) {
+            throw new IllegalArgumentException("ratio must not be negative");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+
+        synchronized (this) {
+            this.budgetRatio = ratio;
+            this.budgetCapacity = capacity;
+            this.budget = capacity;
+        }
+    }
+
+    /**
+     * Record the start of a request, adding to the retry budget.
+     */
+    synchronized void requestStarted() {
+        budget = Math.min(budgetCapacity, budget + budgetRatio);
+    }
+
+    /**
+     * @param result  the result of the latest attempt
+     * @param retries the number of retries made so far
+     * @param elapsed the milliseconds since the first attempt was made
+     * @return the milliseconds to wait before retrying, or -1 if the request should not be retried
+     */
+    long retryDelay(final Result result, final int retries, final long elapsed) {
+        if (!result.getStatus().shouldRetry() || retries >= maxRetries) {
+            return -1;
+        }
+
+        final long delay = backoff(retries);
+        if (elapsed + delay >= deadline) {
+            return -1;
+        }
+
+        synchronized (this) {
+            if (budget < 1) {
+                return -1;
+            }
+            budget -= 1;
+        }
+
+        return delay;
+    }
+
+    long backoff(final int retries) {
+        // Cap the shift, beyond that we're at the maximum anyway
+        final long exponential = initialBackoff << Math.min(retries, 30);
+        final long capped = exponential < 0 ? maxBackoff : Math.min(maxBackoff, exponential);
+
+        return capped - (long)(capped * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+}
@@ -0,0 +1,21 @@
+package com.pusher.rest;
+
+/**
+ * Event data encrypted in the buffer it was serialised into, see
+ * {@link com.pusher.rest.crypto.CryptoUtil#encryptInPlace(String, byte[], int)}. The nonce and ciphertext are
+ * only base64 encoded as {@link JsonBodyWriter} writes them into the request body.
+ */
+final class SealedMessage {
+
+    final byte[] nonce;
+    final byte[] buffer;
+    final int ciphertextOffset;
+    final int ciphertextLength;
+
+    SealedMessage(final byte[] nonce, final byte[] buffer, final int ciphertextOffset, final int ciphertextLength) {
+        this.nonce = nonce;
+        this.buffer = buffer;
+        this.ciphertextOffset = ciphertextOffset;
+        this.ciphertextLength = ciphertextLength;
+    }
+}
@@ -3,6 +3,7 @@ package com.pusher.rest;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -10,6 +11,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.UnaryOperator;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -21,6 +23,24 @@ import com.pusher.rest.util.Prerequisites;
 
 public class SignatureUtil {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Characters, besides alphanumerics, which URIBuilder would leave unescaped in a path or query value
+    private static final String SAFE_PATH_PUNCTUATION = "-._~/,;=@:";
+    private static final String SAFE_QUERY_PUNCTUATION = "-._*";
+
+    private static final ThreadLocal<StringBuilder> FAST_PATH_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private static final ThreadLocal<byte[]> FAST_PATH_BYTES = ThreadLocal.withInitial(() -> new byte[256]);
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        }
+        // If this doesn't exist, we're pretty much out of luck.
+        catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException("The Pusher HTTP client requires MD5 support", e);
+        }
+    });
+
     public static URI uri(final String method,
                           final String scheme,
                           final String host,
@@ -32,18 +52,75 @@ public class SignatureUtil {
 
         Prerequisites.noReservedKeys(extraParams);
 
+        return uri(method, scheme, host, path, utf8(body), key, extraParams, input -> sign(input, secret));
+    }
+
+    public static URI uri(final String method,
+                          final String scheme,
+                          final String host,
+                          final String path,
+                          final String body,
+                          final String key,
+                          final HmacSigner signer,
+                          final Map<String, String> extraParams) {
+
+        return uri(method, scheme, host, path, utf8(body), key, signer, extraParams);
+    }
+
+    public static URI uri(final String method,
+                          final String scheme,
+                          final String host,
+                          final String path,
+                          final byte[] body,
+                          final String key,
+                          final HmacSigner signer,
+                          final Map<String, String> extraParams) {
+
+        Prerequisites.noReservedKeys(extraParams);
+
+        final long timestamp = System.currentTimeMillis() / 1000;
+        if (extraParams.isEmpty() && canUseFastPath(host, path, key)) {
+            return fastUri(method, scheme, host, path, body, key, signer, timestamp);
+        }
+
+        return uri(method, scheme, host, path, body, key, extraParams, signer::sign, timestamp);
+    }
+
+    private static URI uri(final String method,
+                           final String scheme,
+                           final String host,
+                           final String path,
+                           final byte[] body,
+                           final String key,
+                           final Map<String, String> extraParams,
+                           final UnaryOperator<String> signer) {
+
+        return uri(method, scheme, host, path, body, key, extraParams, signer, System.currentTimeMillis() / 1000);
+    }
+
+    // Visible for testing
+    static URI uri(final String method,
+                   final String scheme,
+                   final String host,
+                   final String path,
+                   final byte[] body,
+                   final String key,
+                   final Map<String, String> extraParams,
+                   final UnaryOperator<String> signer,
+                   final long timestamp) {
+
         try {
             final Map<String, String> allParams = new HashMap<String, String>(extraParams);
             allParams.put("auth_key", key);
             allParams.put("auth_version", "1.0");
-            allParams.put("auth_timestamp", Long.toString(System.currentTimeMillis() / 1000));
+            allParams.put("auth_timestamp", Long.toString(timestamp));
             if (body != null) {
                 allParams.put("body_md5", bodyMd5(body));
             }
 
             // This is where the auth gets a bit weird. The query params for the request must include
             // the auth signature which is a signature over all the params except itself.
-            allParams.put("auth_signature", sign(buildSignatureString(method, path, allParams), secret));
+            allParams.put("auth_signature", signer.apply(buildSignatureString(method, path, allParams)));
 
             final URIBuilder b = new URIBuilder()
                     .setScheme(scheme)
@@ -61,19 +138,99 @@ public class SignatureUtil {
         }
     }
 
-    private static String bodyMd5(final String body) {
-        try {
-            final MessageDigest md = MessageDigest.getInstance("MD5");
-            final byte[] digest = md.digest(body.getBytes("UTF-8"));
-            return Hex.encodeHexString(digest);
+    /*
+     * When there are no extra query parameters, the auth params are a fixed set whose sorted order is known,
+     * and as long as the path and key need no escaping we can write both the string to sign and the URI
+     * straight into a per-thread buffer, rather than going through a map and URIBuilder.
+     */
+
+    // Visible for testing
+    static boolean canUseFastPath(final String host, final String path, final String key) {
+        // IPv6 literal hosts need bracketing, leave those to URIBuilder
+        if (host.indexOf(':') != host.lastIndexOf(':')) return false;
+
+        for (int i = 0; i < path.length(); i++) {
+            if (!isSafe(path.charAt(i), SAFE_PATH_PUNCTUATION)) return false;
         }
-        // If this doesn't exist, we're pretty much out of luck.
-        catch (final NoSuchAlgorithmException e) {
-            throw new RuntimeException("The Pusher HTTP client requires MD5 support", e);
+        for (int i = 0; i < key.length(); i++) {
+            if (!isSafe(key.charAt(i), SAFE_QUERY_PUNCTUATION)) return false;
         }
-        catch (final UnsupportedEncodingException e) {
-            throw new RuntimeException("The Pusher HTTP client needs UTF-8 support", e);
+        return true;
+    }
+
+    private static boolean isSafe(final char c, final String safePunctuation) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || safePunctuation.indexOf(c) >= 0;
+    }
+
+    // Visible for testing
+    static URI fastUri(final String method,
+                       final String scheme,
+                       final String host,
+                       final String path,
+                       final byte[] body,
+                       final String key,
+                       final HmacSigner signer,
+                       final long timestamp) {
+
+        final StringBuilder sb = FAST_PATH_BUFFER.get();
+
+        // Params in sorted order, which is also the order they go in the query string
+        sb.setLength(0);
+        sb.append(method).append('\n').append(path).append('\n');
+        final int paramsStart = sb.length();
+        sb.append("auth_key=").append(key)
+            .append("&auth_timestamp=").append(timestamp)
+            .append("&auth_version=1.0");
+        if (body != null) {
+            sb.append("&body_md5=");
+            appendHex(sb, md5(body));
         }
+        final int paramsEnd = sb.length();
+
+        final byte[] toSign = ascii(sb);
+        final String signature = signer.sign(toSign, 0, sb.length());
+
+        final int uriStart = sb.length();
+        sb.append(scheme).append("://").append(host).append(path).append('?');
+        for (int i = paramsStart; i < paramsEnd; i++) {
+            sb.append(sb.charAt(i));
+        }
+        sb.append("&auth_signature=").append(signature);
+
+        return URI.create(sb.substring(uriStart));
+    }
+
+    // Everything written by fastUri is ASCII, so no charset encoder is needed
+    private static byte[] ascii(final CharSequence chars) {
+        byte[] bytes = FAST_PATH_BYTES.get();
+        if (bytes.length < chars.length()) {
+            bytes = new byte[chars.length() * 2];
+            FAST_PATH_BYTES.set(bytes);
+        }
+
+        for (int i = 0; i < chars.length(); i++) {
+            bytes[i] = (byte)chars.charAt(i);
+        }
+        return bytes;
+    }
+
+    private static void appendHex(final StringBuilder sb, final byte[] bytes) {
+        for (final byte b : bytes) {
+            sb.append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+        }
+    }
+
+    private static byte[] md5(final byte[] body) {
+        // digest resets the MessageDigest, ready for the next call on this thread
+        return MD5.get().digest(body);
+    }
+
+    private static String bodyMd5(final byte[] body) {
+        return Hex.encodeHexString(md5(body));
+    }
+
+    private static byte[] utf8(final String body) {
+        return body == null ? null : body.getBytes(StandardCharsets.UTF_8);
     }
 
     public static String sign(final String input, final String secret) {
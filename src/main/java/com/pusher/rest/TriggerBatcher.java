@@ -0,0 +1,327 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.Result;
+import com.pusher.rest.util.Prerequisites;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces individual single channel triggers into batch API calls.
+ * <p>
+ * Events are queued until either the maximum batch size is reached, or the linger time has passed
+ * since the first event of the batch was queued. The batch is then published with a single call to
+ * the batch events endpoint, see {@link PusherAbstract#trigger(List)}, and every caller's future is
+ * completed with the {@link Result} of that call.
+ * <p>
+ * e.g.
+ * <pre>
+ * TriggerBatcher batcher = new TriggerBatcher(pusher);
+ * batcher.setLinger(10);
+ *
+ * CompletableFuture&lt;Result&gt; futureResult = batcher.trigger("my-channel", "my-eventname", myPojoForSerialisation);
+ * </pre>
+ *
+ * Batches are published one at a time, each once the previous batch's call has completed, so events are
+ * published in the order they were queued. Remember to {@link #close()} the batcher when you are done with it,
+ * so that any queued events are published.
+ */
+public class TriggerBatcher implements AutoCloseable {
+
+    private final Function<List<Event>, CompletableFuture<Result>> publisher;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService ownedExecutor;
+
+    private final Object lock = new Object();
+    private List<QueuedEvent> queued = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // Completed once the most recently taken batch has been published
+    private CompletableFuture<Void> lastPublished = CompletableFuture.completedFuture(null);
+    private boolean closed = false;
+
+    private volatile int maxBatchSize = 10;
+    private volatile long linger = 5; // milliseconds
+
+    /**
+     * Batch events published with an asynchronous client.
+     *
+     * @param pusher the client with which to publish batches
+     */
+    public TriggerBatcher(final PusherAsync pusher) {
+        this(pusher::trigger, null);
+    }
+
+    /**
+     * Batch events published with a synchronous client.
+     * <p>
+     * Batches are published on a pool of threads owned by the batcher, which is shut down by {@link #close()}.
+     *
+     * @param pusher the client with which to publish batches
+     */
+    public TriggerBatcher(final Pusher pusher) {
+        this(pusher, newOwnedExecutor(), true);
+    }
+
+    /**
+     * Batch events published with a synchronous client.
+     *
+     * @param pusher   the client with which to publish batches
+     * @param executor the executor on which the blocking batch calls are made
+     */
+    public TriggerBatcher(final Pusher pusher, final Executor executor) {
+        this(pusher, executor, false);
+    }
+
+    /**
+     * Batch events published with an arbitrary function, for example one wrapping a custom subclass of
+     * {@link PusherAbstract}.
+     *
+     * @param publisher a function which publishes a batch of events and completes with the result
+     */
+    public TriggerBatcher(final Function<List<Event>, CompletableFuture<Result>> publisher) {
+        this(publisher, null);
+    }
+
+    private TriggerBatcher(final Pusher pusher, final Executor executor, final boolean ownsExecutor) {
+        this(publisherFor(pusher, executor), ownsExecutor ? (ExecutorService)executor : null);
+    }
+
+    private TriggerBatcher(final Function<List<Event>, CompletableFuture<Result>> publisher, final ExecutorService ownedExecutor) {
+        Prerequisites.nonNull("publisher", publisher);
+
+        this.publisher = publisher;
+        this.ownedExecutor = ownedExecutor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "pusher-trigger-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Validates before delegating, so that no scheduler thread is started for invalid arguments
+    private static Function<List<Event>, CompletableFuture<Result>> publisherFor(final Pusher pusher, final Executor executor) {
+        Prerequisites.nonNull("pusher", pusher);
+        Prerequisites.nonNull("executor", executor);
+
+        return batch -> CompletableFuture.supplyAsync(() -> pusher.trigger(batch), executor);
+    }
+
+    private static ExecutorService newOwnedExecutor() {
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "pusher-trigger-batcher-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * CONFIG
+     */
+
+    /**
+     * The maximum number of events published in a single batch.
+     * <p>
+     * The batch is limited to 10 events on our multi-tenant clusters.
+     * <p>
+     * Default: 10
+     *
+     * @param maxBatchSize the maximum number of events in a batch
+     */
+    public void setMaxBatchSize(final int maxBatchSize) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("Parameter [maxBatchSize] must be at least 1");
+
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * How long to wait for further events before publishing a batch which has not reached the maximum size.
+     * <p>
+     * Default: 5
+     *
+     * @param linger the linger time in milliseconds
+     */
+    public void setLinger(final long linger) {
+        if (linger < 0) throw new IllegalArgumentException("Parameter [linger] must not be negative");
+
+        this.linger = linger;
+    }
+
+    /*
+     * REST
+     */
+
+    /**
+     * Queue a message for publication to a single channel.
+     *
+     * @param channel   the channel name on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @return a future completed with the {@link Result} of the batch the event was published in
+     */
+    public CompletableFuture<Result> trigger(final String channel, final String eventName, final Object data) {
+        return trigger(channel, eventName, data, null);
+    }
+
+    /**
+     * Queue a message for publication to a single channel, excluding the specified socketId from receiving the message.
+     *
+     * @param channel   the channel name on which to trigger the event
+     * @param eventName the name given to the event
+     * @param data      an object which will be serialised to create the event body
+     * @param socketId  a socket id which should be excluded from receiving the event
+     * @return a future completed with the {@link Result} of the batch the event was published in
+     */
+    public CompletableFuture<Result> trigger(final String channel, final String eventName, final Object data, final String socketId) {
+        Prerequisites.nonNull("eventName", eventName);
+        Prerequisites.nonNull("data", data);
+        Prerequisites.isValidChannel(channel);
+        Prerequisites.isValidSocketId(socketId);
+
+        final QueuedEvent queuedEvent = new QueuedEvent(new Event(channel, eventName, data, socketId));
+
+        final Batch ready;
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("TriggerBatcher has been closed");
+
+            queued.add(queuedEvent);
+            if (queued.size() >= maxBatchSize) {
+                ready = takeBatch();
+            } else {
+                ready = null;
+                if (scheduledFlush == null) {
+                    scheduledFlush = scheduler.schedule(this::flush, linger, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        if (ready != null) {
+            ready.publishAfterPrevious();
+        }
+
+        return queuedEvent.result;
+    }
+
+    /**
+     * Publish any queued events immediately, without waiting for the linger time to pass.
+     */
+    public void flush() {
+        final Batch ready;
+        synchronized (lock) {
+            ready = queued.isEmpty() ? null : takeBatch();
+        }
+
+        if (ready != null) {
+            ready.publishAfterPrevious();
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be published
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queued.size();
+        }
+    }
+
+    // Must hold lock. Taking the batch and its place in the publication order together keeps them consistent
+    private Batch takeBatch() {
+        final List<QueuedEvent> taken = queued;
+        queued = new ArrayList<>(maxBatchSize);
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        final Batch batch = new Batch(taken, lastPublished);
+        lastPublished = batch.published;
+        return batch;
+    }
+
+    private void publish(final List<QueuedEvent> ready, final CompletableFuture<Void> done) {
+        final List<Event> batch = new ArrayList<>(ready.size());
+        for (final QueuedEvent e : ready) {
+            batch.add(e.event);
+        }
+
+        final CompletableFuture<Result> published;
+        try {
+            published = publisher.apply(batch);
+        } catch (final RuntimeException e) {
+            for (final QueuedEvent queuedEvent : ready) {
+                queuedEvent.result.completeExceptionally(e);
+            }
+            done.complete(null);
+            return;
+        }
+
+        published.whenComplete((result, throwable) -> {
+            for (final QueuedEvent queuedEvent : ready) {
+                if (throwable != null) {
+                    queuedEvent.result.completeExceptionally(throwable);
+                } else {
+                    queuedEvent.result.complete(result);
+                }
+            }
+            done.complete(null);
+        });
+    }
+
+    /**
+     * Publish any queued events and release the batcher's threads. Events may not be queued after the
+     * batcher has been closed.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+        }
+
+        flush();
+        scheduler.shutdown();
+
+        if (ownedExecutor != null) {
+            // Batches still waiting for their turn are published on the owned executor
+            final CompletableFuture<Void> lastPublished;
+            synchronized (lock) {
+                lastPublished = this.lastPublished;
+            }
+            lastPublished.whenComplete((ignored, throwable) -> ownedExecutor.shutdown());
+        }
+    }
+
+    private final class Batch {
+        private final List<QueuedEvent> events;
+        private final CompletableFuture<Void> previous;
+        private final CompletableFuture<Void> published = new CompletableFuture<>();
+
+        private Batch(final List<QueuedEvent> events, final CompletableFuture<Void> previous) {
+            this.events = events;
+            this.previous = previous;
+        }
+
+        private void publishAfterPrevious() {
+            previous.whenComplete((ignored, throwable) -> publish(events, published));
+        }
+    }
+
+    private static final class QueuedEvent {
+        private final Event event;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        private QueuedEvent(final Event event) {
+            this.event = event;
+        }
+    }
+}
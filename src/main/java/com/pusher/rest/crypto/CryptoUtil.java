@@ -8,42 +8,123 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CryptoUtil {
 
     private static final String SHARED_SECRET_ENCRYPTION_ALGO = "SHA-256";
     private static final int MASTER_KEY_LENGTH = 32;
+    private static final int DEFAULT_CHANNEL_KEY_CACHE_SIZE = 1000;
+
     private final byte[] encryptionMasterKey;
 
+    // Keys derived for recently used channels, least recently used first
+    private final LinkedHashMap<String, ChannelKey> channelKeys = new LinkedHashMap<>(16, 0.75f, true);
+    private int channelKeyCacheSize = DEFAULT_CHANNEL_KEY_CACHE_SIZE;
+    private final LongAdder channelKeyCacheHits = new LongAdder();
+    private final LongAdder channelKeyCacheMisses = new LongAdder();
+
+    private volatile NonceGenerator nonceGenerator = new SecureRandomNonceGenerator();
+
     public CryptoUtil(final String base64EncodedMasterKey) {
         Prerequisites.nonEmpty("base64EncodedMasterKey", base64EncodedMasterKey);
 
         this.encryptionMasterKey = parseEncryptionMasterKey(base64EncodedMasterKey);
     }
 
+    /**
+     * Set the number of channels for which the derived shared secret and a ready SecretBox are kept,
+     * so that they aren't recomputed on every encrypt, decrypt or authentication. The least recently
+     * used channel is evicted when the cache is full. Zero disables caching.
+     * <p>
+     * Default: 1000
+     *
+     * @param size the maximum number of channels to keep keys for
+     */
+    public void setChannelKeyCacheSize(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Channel key cache size must not be negative");
+        }
+
+        synchronized (channelKeys) {
+            channelKeyCacheSize = size;
+            evictChannelKeys();
+        }
+    }
+
+    /**
+     * Set the source of the nonces used to encrypt messages.
+     * <p>
+     * Default: a {@link SecureRandomNonceGenerator} with a SecureRandom per thread
+     *
+     * @param nonceGenerator the generator to use
+     * @see PooledNonceGenerator
+     */
+    public void setNonceGenerator(final NonceGenerator nonceGenerator) {
+        Prerequisites.nonNull("nonceGenerator", nonceGenerator);
+
+        synchronized (channelKeys) {
+            this.nonceGenerator = nonceGenerator;
+            // Cached boxes hold on to the previous generator
+            channelKeys.clear();
+        }
+    }
+
+    /**
+     * @return the number of lookups which found the channel's key already cached
+     */
+    public long getChannelKeyCacheHits() {
+        return channelKeyCacheHits.sum();
+    }
+
+    /**
+     * @return the number of lookups which had to derive the channel's key
+     */
+    public long getChannelKeyCacheMisses() {
+        return channelKeyCacheMisses.sum();
+    }
+
     public String generateBase64EncodedSharedSecret(final String channel) {
         return Base64.getEncoder().withoutPadding().encodeToString(
-            generateSharedSecret(channel)
+            channelKey(channel).sharedSecret
         );
     }
 
     public EncryptedMessage encrypt(final String channel, final byte[] message) {
-        final byte[] sharedSecret = generateSharedSecret(channel);
+        final byte[] buffer = new byte[SecretBox.MESSAGE_OFFSET + message.length];
+        System.arraycopy(message, 0, buffer, SecretBox.MESSAGE_OFFSET, message.length);
 
-        final Map<String, byte[]> res = SecretBox.box(sharedSecret, message);
+        final byte[] nonce = encryptInPlace(channel, buffer, message.length);
+        return new EncryptedMessage(nonce, buffer, SecretBox.CIPHERTEXT_OFFSET, ciphertextLength(message.length));
+    }
 
-        return new EncryptedMessage(
-            Base64.getEncoder().encodeToString(res.get("nonce")),
-            Base64.getEncoder().encodeToString(res.get("cipher"))
-        );
+    /**
+     * Encrypt a message in the buffer holding it, without copying it.
+     * <p>
+     * The message must start at {@link SecretBox#MESSAGE_OFFSET} in the buffer. On return, the ciphertext is
+     * at {@link SecretBox#CIPHERTEXT_OFFSET}, and is {@link #ciphertextLength(int)} bytes long.
+     *
+     * @param channel       the encrypted channel the message is for
+     * @param buffer        the buffer holding the message
+     * @param messageLength the length of the message
+     * @return the nonce the message was encrypted with
+     */
+    public byte[] encryptInPlace(final String channel, final byte[] buffer, final int messageLength) {
+        return channelKey(channel).secretBox.sealInPlace(buffer, messageLength);
     }
 
-    public String decrypt(final String channel, final EncryptedMessage encryptedMessage) {
-        final byte[] sharedSecret = generateSharedSecret(channel);
+    /**
+     * @param messageLength the length of a message
+     * @return the length of its ciphertext
+     */
+    public static int ciphertextLength(final int messageLength) {
+        return SecretBox.MESSAGE_OFFSET + messageLength - SecretBox.CIPHERTEXT_OFFSET;
+    }
 
-        final byte[] decryptMessage = SecretBox.open(
-            sharedSecret,
+    public String decrypt(final String channel, final EncryptedMessage encryptedMessage) {
+        final byte[] decryptMessage = channelKey(channel).secretBox.open(
             Base64.getDecoder().decode(encryptedMessage.getNonce()),
             Base64.getDecoder().decode(encryptedMessage.getCiphertext().getBytes())
         );
@@ -61,6 +142,36 @@ public class CryptoUtil {
         return key;
     }
 
+    private ChannelKey channelKey(final String channel) {
+        synchronized (channelKeys) {
+            final ChannelKey cached = channelKeys.get(channel);
+            if (cached != null) {
+                channelKeyCacheHits.increment();
+                return cached;
+            }
+        }
+
+        // Derive outside the lock, a race just means the same key is derived twice
+        channelKeyCacheMisses.increment();
+        final ChannelKey derived = new ChannelKey(generateSharedSecret(channel), nonceGenerator);
+
+        synchronized (channelKeys) {
+            if (channelKeyCacheSize > 0) {
+                channelKeys.put(channel, derived);
+                evictChannelKeys();
+            }
+        }
+        return derived;
+    }
+
+    private void evictChannelKeys() {
+        final Iterator<ChannelKey> it = channelKeys.values().iterator();
+        while (channelKeys.size() > channelKeyCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
     private byte[] generateSharedSecret(final String channel) {
         try {
             MessageDigest digest = MessageDigest.getInstance(CryptoUtil.SHARED_SECRET_ENCRYPTION_ALGO);
@@ -75,4 +186,14 @@ public class CryptoUtil {
             throw new RuntimeException(e);
         }
     }
+
+    private static final class ChannelKey {
+        private final byte[] sharedSecret;
+        private final SecretBox secretBox;
+
+        private ChannelKey(final byte[] sharedSecret, final NonceGenerator nonceGenerator) {
+            this.sharedSecret = sharedSecret;
+            this.secretBox = new SecretBox(sharedSecret, nonceGenerator);
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.pusher.rest.crypto;
+
+/**
+ * Source of the random nonces used when encrypting messages for encrypted channels.
+ * <p>
+ * Nonces must never repeat for a given key, so implementations must draw them from a
+ * cryptographically secure source. Implementations must be threadsafe.
+ *
+ * @see SecureRandomNonceGenerator
+ * @see PooledNonceGenerator
+ */
+public interface NonceGenerator {
+
+    /**
+     * Fill the array with a fresh nonce.
+     *
+     * @param nonce the array to fill
+     */
+    void nextNonce(byte[] nonce);
+}
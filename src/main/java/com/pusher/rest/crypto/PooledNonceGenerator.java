@@ -0,0 +1,77 @@
+package com.pusher.rest.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands out nonces generated ahead of time by a background thread, so that the cost of generating
+ * them is kept off the publishing thread.
+ * <p>
+ * If the pool is ever empty, a nonce is generated on the calling thread instead, so callers never wait.
+ * <p>
+ * The background thread is a daemon, but should be stopped with {@link #close()} when the generator
+ * is no longer needed.
+ */
+public class PooledNonceGenerator implements NonceGenerator, AutoCloseable {
+
+    private static final int NONCE_LENGTH = 24;
+
+    private final BlockingQueue<byte[]> pool;
+    private final NonceGenerator fallback = new SecureRandomNonceGenerator();
+    private final Thread filler;
+
+    /**
+     * @param poolSize the number of nonces to keep ready
+     */
+    public PooledNonceGenerator(final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.filler = new Thread(this::fill, "pusher-nonce-pool");
+        this.filler.setDaemon(true);
+        this.filler.start();
+    }
+
+    @Override
+    public void nextNonce(final byte[] nonce) {
+        final byte[] pooled = nonce.length == NONCE_LENGTH ? pool.poll() : null;
+
+        if (pooled == null) {
+            fallback.nextNonce(nonce);
+        } else {
+            System.arraycopy(pooled, 0, nonce, 0, NONCE_LENGTH);
+        }
+    }
+
+    /**
+     * @return the number of nonces currently ready in the pool
+     */
+    public int getPooledCount() {
+        return pool.size();
+    }
+
+    /**
+     * Stop the background thread. Nonces are generated on the calling thread from then on.
+     */
+    @Override
+    public void close() {
+        filler.interrupt();
+        pool.clear();
+    }
+
+    private void fill() {
+        final SecureRandom random = new SecureRandom();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final byte[] nonce = new byte[NONCE_LENGTH];
+                random.nextBytes(nonce);
+                pool.put(nonce);
+            }
+        } catch (final InterruptedException e) {
+            // Closed
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pusher.rest.crypto;
+
+import com.pusher.rest.util.Prerequisites;
+
+import java.security.SecureRandom;
+
+/**
+ * Generates nonces directly from a {@link SecureRandom}.
+ * <p>
+ * By default each thread gets its own SecureRandom, created on first use, so that concurrent
+ * publishers don't contend on a single instance. Alternatively a single SecureRandom can be shared.
+ */
+public class SecureRandomNonceGenerator implements NonceGenerator {
+
+    private final ThreadLocal<SecureRandom> random;
+
+    /**
+     * Use a SecureRandom per thread.
+     */
+    public SecureRandomNonceGenerator() {
+        this.random = ThreadLocal.withInitial(SecureRandom::new);
+    }
+
+    /**
+     * Use a single SecureRandom from all threads.
+     *
+     * @param random the SecureRandom to generate nonces with
+     */
+    public SecureRandomNonceGenerator(final SecureRandom random) {
+        Prerequisites.nonNull("random", random);
+
+        this.random = ThreadLocal.withInitial(() -> random);
+    }
+
+    @Override
+    public void nextNonce(final byte[] nonce) {
+        random.get().nextBytes(nonce);
+    }
+}
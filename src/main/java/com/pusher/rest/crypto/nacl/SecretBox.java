@@ -1,22 +1,76 @@
 package com.pusher.rest.crypto.nacl;
 
-import java.security.SecureRandom;
+import com.pusher.rest.crypto.NonceGenerator;
+import com.pusher.rest.crypto.SecureRandomNonceGenerator;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * SecretBox class controls access to TweetNaclFast to prevent users from
  * reaching out to TweetNaclFast. TweetNaclFast must stay package private.
+ * <p>
+ * Instances hold a box ready to use with a single key, and are threadsafe.
  */
 public class SecretBox {
 
     private final static int NONCE_LENGTH = 24;
 
-    public static Map<String, byte[]> box(final byte[] key, final byte[] message) {
-        TweetNaclFast.SecretBox secretBox = new TweetNaclFast.SecretBox(key);
+    /**
+     * Where the message must start in a buffer passed to {@link #sealInPlace(byte[], int)}.
+     */
+    public final static int MESSAGE_OFFSET = 32;
+
+    /**
+     * Where the ciphertext starts in a buffer once {@link #sealInPlace(byte[], int)} returns.
+     */
+    public final static int CIPHERTEXT_OFFSET = 16;
+    private final static NonceGenerator DEFAULT_NONCE_GENERATOR = new SecureRandomNonceGenerator();
+
+    private final byte[] key;
+    private final TweetNaclFast.SecretBox secretBox;
+    private final NonceGenerator nonceGenerator;
+
+    public SecretBox(final byte[] key) {
+        this(key, DEFAULT_NONCE_GENERATOR);
+    }
+
+    public SecretBox(final byte[] key, final NonceGenerator nonceGenerator) {
+        this.key = key;
+        this.secretBox = new TweetNaclFast.SecretBox(key);
+        this.nonceGenerator = nonceGenerator;
+    }
+
+    /**
+     * Encrypt a message in the buffer holding it, without any intermediate copies.
+     * <p>
+     * The message must be at {@link #MESSAGE_OFFSET} in the buffer, and whatever is before it is overwritten.
+     * On return, the ciphertext is at {@link #CIPHERTEXT_OFFSET}, and is {@code messageLength + 16} bytes long.
+     *
+     * @param buffer        the buffer holding the message
+     * @param messageLength the length of the message
+     * @return the nonce the message was encrypted with
+     */
+    public byte[] sealInPlace(final byte[] buffer, final int messageLength) {
+        final int length = MESSAGE_OFFSET + messageLength;
+        if (messageLength < 0 || buffer.length < length) {
+            throw new IllegalArgumentException("Buffer is too small for a message of length " + messageLength);
+        }
 
         final byte[] nonce = new byte[NONCE_LENGTH];
-        new SecureRandom().nextBytes(nonce);
+        nonceGenerator.nextNonce(nonce);
+
+        // crypto_secretbox requires the message to be preceded by zeros, and writes the MAC over some of them
+        Arrays.fill(buffer, 0, MESSAGE_OFFSET, (byte)0);
+        TweetNaclFast.crypto_secretbox(buffer, buffer, length, nonce, key);
+
+        return nonce;
+    }
+
+    public Map<String, byte[]> box(final byte[] message) {
+        final byte[] nonce = new byte[NONCE_LENGTH];
+        nonceGenerator.nextNonce(nonce);
         final byte[] cipher = secretBox.box(message, nonce);
 
         final Map<String, byte[]> res = new HashMap<>();
@@ -26,9 +80,7 @@ public class SecretBox {
         return res;
     }
 
-    public static byte[] open(final byte[] key, final byte[] nonce, final byte[] cipher) {
-        TweetNaclFast.SecretBox secretBox = new TweetNaclFast.SecretBox(key);
-
+    public byte[] open(final byte[] nonce, final byte[] cipher) {
         final byte[] decryptedMessage = secretBox.open(cipher, nonce);
 
         if (decryptedMessage == null) {
@@ -37,4 +89,12 @@ public class SecretBox {
 
         return decryptedMessage;
     }
+
+    public static Map<String, byte[]> box(final byte[] key, final byte[] message) {
+        return new SecretBox(key).box(message);
+    }
+
+    public static byte[] open(final byte[] key, final byte[] nonce, final byte[] cipher) {
+        return new SecretBox(key).open(nonce, cipher);
+    }
 }
@@ -0,0 +1,52 @@
+package com.pusher.rest.data;
+
+/**
+ * The state of a channel, as returned by the channel queries. Attributes which weren't requested, or which the
+ * API doesn't return for the query or channel type, are null.
+ */
+public class ChannelInfo {
+
+    private final String name;
+    private final Boolean occupied;
+    private final Integer userCount;
+    private final Integer subscriptionCount;
+
+    /**
+     * @param name              the channel name
+     * @param occupied          whether the channel has any subscribers, or null
+     * @param userCount         the number of distinct users in a presence channel, or null
+     * @param subscriptionCount the number of connections subscribed to the channel, or null
+     */
+    public ChannelInfo(final String name, final Boolean occupied, final Integer userCount, final Integer subscriptionCount) {
+        this.name = name;
+        this.occupied = occupied;
+        this.userCount = userCount;
+        this.subscriptionCount = subscriptionCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return whether the channel has any subscribers, or null if not returned. Channels in the channel list
+     *         are always occupied.
+     */
+    public Boolean getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the number of distinct users in a presence channel, or null if not requested
+     */
+    public Integer getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * @return the number of connections subscribed to the channel, or null if not requested
+     */
+    public Integer getSubscriptionCount() {
+        return subscriptionCount;
+    }
+}
@@ -1,5 +1,9 @@
 package com.pusher.rest.data;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
 public class EncryptedMessage {
 
     private final String nonce;
@@ -10,6 +14,16 @@ public class EncryptedMessage {
         this.ciphertext = ciphertext;
     }
 
+    /**
+     * @param nonce            the nonce the message was encrypted with
+     * @param buffer           a buffer holding the ciphertext
+     * @param ciphertextOffset the offset of the ciphertext in the buffer
+     * @param ciphertextLength the length of the ciphertext
+     */
+    public EncryptedMessage(byte[] nonce, byte[] buffer, int ciphertextOffset, int ciphertextLength) {
+        this(Base64.getEncoder().encodeToString(nonce), base64(ByteBuffer.wrap(buffer, ciphertextOffset, ciphertextLength)));
+    }
+
     public String getNonce() {
         return nonce;
     }
@@ -17,4 +31,9 @@ public class EncryptedMessage {
     public String getCiphertext() {
         return ciphertext;
     }
+
+    // Encodes the slice without copying it out of the buffer first
+    private static String base64(final ByteBuffer bytes) {
+        return new String(Base64.getEncoder().encode(bytes).array(), StandardCharsets.US_ASCII);
+    }
 }
@@ -16,6 +16,9 @@ public class Result {
         SERVER_ERROR(true),
         NETWORK_ERROR(true),
         UNKNOWN_ERROR(true),
+        CIRCUIT_OPEN(false), // Not sent, the client's circuit breaker is open
+        RATE_LIMITED(false), // Not sent, the client's rate limit was reached
+        QUEUE_FULL(false), // Not sent, the client's request queue was full
         ;
 
         private final boolean shouldRetry;
@@ -104,6 +107,17 @@ public class Result {
         return new Result(Status.UNKNOWN_ERROR, null, t.toString());
     }
 
+    /**
+     * Factory method, for calls which the client did not make
+     *
+     * @param status the reason the call was not made
+     * @param message a description of why the call was not made
+     * @return a Result encapsulating the params
+     */
+    public static Result fromStatus(final Status status, final String message) {
+        return new Result(status, null, message);
+    }
+
     /**
      * @return the enum classifying the result of the call
      */
@@ -0,0 +1,45 @@
+package com.pusher.rest.data;
+
+/**
+ * The outcome of warming up a client's connections to the API.
+ */
+public class WarmUpResult {
+
+    private final int requested;
+    private final int responded;
+    private final long duration;
+
+    /**
+     * @param requested the number of connections asked for
+     * @param responded the number of warm-up requests which got a response
+     * @param duration  the time taken to warm up in milliseconds
+     */
+    public WarmUpResult(final int requested, final int responded, final long duration) {
+        this.requested = requested;
+        this.responded = responded;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the number of connections asked for
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    /**
+     * @return the number of warm-up requests which got a response from the API, whatever its status, and so
+     *         reached the API over a pooled connection
+     */
+    public int getResponded() {
+        return responded;
+    }
+
+    /**
+     * @return the time taken to warm up in milliseconds, which is roughly the cost the first requests would
+     *         otherwise have paid
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -1,6 +1,25 @@
 package com.pusher.rest.marshaller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
 public interface DataMarshaller {
 
    String marshal(final Object data);
+
+   /**
+    * Marshal the data as UTF-8 encoded text directly to a stream.
+    * <p>
+    * This is what the library uses to serialise event data. The default implementation encodes the
+    * result of {@link #marshal(Object)}, implementations which can write bytes without building a String
+    * first should override it.
+    *
+    * @param data the data to marshal
+    * @param out  the stream to write to, which should not be closed
+    * @throws IOException if writing to the stream fails
+    */
+   default void marshal(final Object data, final OutputStream out) throws IOException {
+      out.write(marshal(data).getBytes(StandardCharsets.UTF_8));
+   }
 }
@@ -4,6 +4,12 @@ import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 public class DefaultDataMarshaller implements DataMarshaller {
 
    private final Gson gson;
@@ -21,4 +27,11 @@ public class DefaultDataMarshaller implements DataMarshaller {
    public String marshal(final Object data) {
       return gson.toJson(data);
    }
+
+   @Override
+   public void marshal(final Object data, final OutputStream out) throws IOException {
+      final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      gson.toJson(data, writer);
+      writer.flush();
+   }
 }
@@ -0,0 +1,129 @@
+package com.pusher.rest.metrics;
+
+import com.pusher.rest.data.Result.Status;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps measurements in memory, to be read periodically, for example by a metrics exporter.
+ * <p>
+ * For each endpoint and result status it counts requests and payload bytes and keeps a
+ * {@link LatencyHistogram}, and for each endpoint it totals the time spent in each {@link Phase}.
+ * Counts are cumulative from creation.
+ * <p>
+ * e.g.
+ * <pre>
+ * InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+ * pusher.setRequestMetrics(metrics);
+ * ...
+ * long p99 = metrics.getLatency("/events", Status.SUCCESS).getValueAtPercentile(99);
+ * </pre>
+ */
+public class InMemoryRequestMetrics implements RequestMetrics {
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordRequest(final String endpoint, final Status status, final long latency, final long payloadBytes) {
+        final StatusMetrics metrics = endpoint(endpoint).status(status);
+        metrics.latency.record(latency);
+        metrics.payloadBytes.add(payloadBytes);
+    }
+
+    @Override
+    public void recordTime(final String endpoint, final Phase phase, final long time) {
+        endpoint(endpoint).times[phase.ordinal()].add(time);
+    }
+
+    /**
+     * @return the endpoints for which anything has been recorded
+     */
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(endpoints.keySet());
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. /events
+     * @param status   the result status
+     * @return the number of requests to the endpoint with the status
+     */
+    public long getCount(final String endpoint, final Status status) {
+        final StatusMetrics metrics = find(endpoint, status);
+        return metrics == null ? 0 : metrics.latency.getCount();
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. /events
+     * @param status   the result status
+     * @return the total bytes of the bodies of requests to the endpoint with the status
+     */
+    public long getPayloadBytes(final String endpoint, final Status status) {
+        final StatusMetrics metrics = find(endpoint, status);
+        return metrics == null ? 0 : metrics.payloadBytes.sum();
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. /events
+     * @param status   the result status
+     * @return the latencies of requests to the endpoint with the status, empty if there were none
+     */
+    public LatencyHistogram getLatency(final String endpoint, final Status status) {
+        final StatusMetrics metrics = find(endpoint, status);
+        return metrics == null ? new LatencyHistogram() : metrics.latency;
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. /events
+     * @param phase    the work done
+     * @return the total nanoseconds spent on the phase for requests to the endpoint
+     */
+    public long getTime(final String endpoint, final Phase phase) {
+        final EndpointMetrics metrics = endpoints.get(endpoint);
+        return metrics == null ? 0 : metrics.times[phase.ordinal()].sum();
+    }
+
+    private EndpointMetrics endpoint(final String endpoint) {
+        final EndpointMetrics metrics = endpoints.get(endpoint);
+        return metrics != null ? metrics : endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics());
+    }
+
+    private StatusMetrics find(final String endpoint, final Status status) {
+        final EndpointMetrics metrics = endpoints.get(endpoint);
+        return metrics == null ? null : metrics.statuses.get(status.ordinal());
+    }
+
+    private static final class EndpointMetrics {
+        private final AtomicReferenceArray<StatusMetrics> statuses = new AtomicReferenceArray<>(STATUSES.length);
+        private final LongAdder[] times = new LongAdder[PHASES.length];
+
+        private EndpointMetrics() {
+            for (int i = 0; i < times.length; i++) {
+                times[i] = new LongAdder();
+            }
+        }
+
+        // Histograms are only allocated for the statuses an endpoint actually returns
+        private StatusMetrics status(final Status status) {
+            final StatusMetrics metrics = statuses.get(status.ordinal());
+            if (metrics != null) {
+                return metrics;
+            }
+
+            statuses.compareAndSet(status.ordinal(), null, new StatusMetrics());
+            return statuses.get(status.ordinal());
+        }
+    }
+
+    private static final class StatusMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder payloadBytes = new LongAdder();
+    }
+}
@@ -0,0 +1,22 @@
+package com.pusher.rest.metrics;
+
+import com.pusher.rest.data.Result.Status;
+
+/**
+ * Discards all measurements. This is the default.
+ */
+public final class NoOpRequestMetrics implements RequestMetrics {
+
+    public static final NoOpRequestMetrics INSTANCE = new NoOpRequestMetrics();
+
+    private NoOpRequestMetrics() {
+    }
+
+    @Override
+    public void recordRequest(final String endpoint, final Status status, final long latency, final long payloadBytes) {
+    }
+
+    @Override
+    public void recordTime(final String endpoint, final Phase phase, final long time) {
+    }
+}
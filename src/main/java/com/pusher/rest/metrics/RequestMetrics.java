@@ -0,0 +1,52 @@
+package com.pusher.rest.metrics;
+
+import com.pusher.rest.data.Result.Status;
+
+/**
+ * Receives measurements of the requests a client makes to the API, for example to export them to a
+ * monitoring system. Set with {@link com.pusher.rest.PusherAbstract#setRequestMetrics(RequestMetrics)}.
+ * <p>
+ * Endpoints are the request paths relative to the app, with channel names replaced, so that there
+ * are few of them: {@code /events}, {@code /batch_events}, {@code /channels},
+ * {@code /channels/{channel}} and {@code /channels/{channel}/users}. Other paths passed to
+ * {@code get} and {@code post} are reported as they are.
+ * <p>
+ * Implementations are called from the threads making and completing requests, so must be thread safe,
+ * and should be quick and not throw.
+ *
+ * @see NoOpRequestMetrics
+ * @see InMemoryRequestMetrics
+ */
+public interface RequestMetrics {
+
+    /**
+     * The work done on the calling thread to prepare a request.
+     */
+    enum Phase {
+        /** Serialising event data and writing the request body */
+        SERIALISE,
+        /** Encrypting event data for encrypted channels */
+        ENCRYPT,
+        /** Signing the request */
+        SIGN
+    }
+
+    /**
+     * Called once a request has completed, whether or not it was sent.
+     *
+     * @param endpoint     the endpoint requested
+     * @param status       the status of the result
+     * @param latency      the nanoseconds from making the request to its result, including any retries
+     * @param payloadBytes the size of the request body in bytes, 0 for a GET
+     */
+    void recordRequest(String endpoint, Status status, long latency, long payloadBytes);
+
+    /**
+     * Called each time part of a request is prepared, so possibly several times for one request.
+     *
+     * @param endpoint the endpoint being requested
+     * @param phase    the work done
+     * @param time     the nanoseconds it took
+     */
+    void recordTime(String endpoint, Phase phase, long time);
+}
@@ -0,0 +1,80 @@
+package com.pusher.rest.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent spans in a fixed size ring buffer, to be dumped on demand, for example from a
+ * diagnostics endpoint when triggers are slow. Recording a span is lock free and never blocks; once the
+ * buffer is full each span overwrites the oldest.
+ * <p>
+ * e.g.
+ * <pre>
+ * RingBufferTraceListener traces = new RingBufferTraceListener(4096);
+ * pusher.setTraceListener(traces);
+ * ...
+ * traces.dump().forEach(System.out::println);
+ * </pre>
+ */
+public class RingBufferTraceListener implements TraceListener {
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param capacity the number of spans to keep, rounded up to a power of two
+     */
+    public RingBufferTraceListener(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void onSpan(final Span span) {
+        final long sequence = next.getAndIncrement();
+        entries.set((int)(sequence & mask), new Entry(sequence, span));
+    }
+
+    /**
+     * @return the spans in the buffer, oldest first. Spans being recorded concurrently may be missed.
+     */
+    public List<Span> dump() {
+        final long end = next.get();
+        final long start = Math.max(0, end - entries.length());
+
+        final List<Span> spans = new ArrayList<>((int)(end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            final Entry entry = entries.get((int)(sequence & mask));
+            // Skip slots not yet written, or already overwritten by a newer span
+            if (entry != null && entry.sequence == sequence) {
+                spans.add(entry.span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * @return the number of spans recorded since creation, including those since overwritten
+     */
+    public long getRecordedCount() {
+        return next.get();
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final Span span;
+
+        private Entry(final long sequence, final Span span) {
+            this.sequence = sequence;
+            this.span = span;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.pusher.rest.tracing;
+
+import com.pusher.rest.data.Result.Status;
+
+/**
+ * A timed phase of a request to the API, passed to a {@link TraceListener} when it ends.
+ * <p>
+ * Each request has a {@link Kind#REQUEST} span, covering it from the call to {@code trigger}, {@code get} or
+ * {@code post} to its result, whose children are the phases within it. The spans of one request share a
+ * trace id, and the children have the root's span id as their parent id. Signing and sending are repeated,
+ * as further child spans, for each retry.
+ */
+public final class Span {
+
+    /**
+     * The phase of a request a span covers.
+     */
+    public enum Kind {
+        /** The whole request, the parent of the other spans */
+        REQUEST,
+        /** Checking the channel names, event name and socket id */
+        VALIDATE,
+        /** Serialising event data and writing the request body */
+        SERIALISE,
+        /** Encrypting event data for an encrypted channel */
+        ENCRYPT,
+        /** Signing the request */
+        SIGN,
+        /** Sending the request and receiving the response */
+        SEND
+    }
+
+    private final long traceId;
+    private final int spanId;
+    private final int parentId;
+    private final Kind kind;
+    private final String endpoint;
+    private final long start;
+    private final long duration;
+    private final int channels;
+    private final long bodyBytes;
+    private final Status status;
+
+    /**
+     * @param traceId   identifies the request the span belongs to
+     * @param spanId    identifies the span within its trace, 1 for the root
+     * @param parentId  the span id of the parent, or 0 for the root
+     * @param kind      the phase the span covers
+     * @param endpoint  the endpoint requested, e.g. /events
+     * @param start     the {@link System#nanoTime()} at which the span started
+     * @param duration  the nanoseconds the span took
+     * @param channels  the number of channels published to, or 0 if not publishing
+     * @param bodyBytes the size of the request body in bytes, or -1 if not yet known
+     * @param status    the status of the result, or null if the span doesn't have one
+     */
+    public Span(final long traceId, final int spanId, final int parentId, final Kind kind, final String endpoint,
+                final long start, final long duration, final int channels, final long bodyBytes, final Status status) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.kind = kind;
+        this.endpoint = endpoint;
+        this.start = start;
+        this.duration = duration;
+        this.channels = channels;
+        this.bodyBytes = bodyBytes;
+        this.status = status;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public int getSpanId() {
+        return spanId;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the span started, only comparable to other spans' starts
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the nanoseconds the span took
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the number of channels published to, or 0 if not publishing
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the size of the request body in bytes, or -1 if not yet known when the span ended
+     */
+    public long getBodyBytes() {
+        return bodyBytes;
+    }
+
+    /**
+     * @return the status of the result for {@link Kind#REQUEST} and {@link Kind#SEND} spans, otherwise null
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "trace " + traceId + " span " + spanId + (parentId == 0 ? "" : " parent " + parentId)
+                + " " + kind + " " + endpoint + " " + duration / 1000 + "us"
+                + " channels=" + channels + " bodyBytes=" + bodyBytes + (status == null ? "" : " status=" + status);
+    }
+}
@@ -0,0 +1,19 @@
+package com.pusher.rest.tracing;
+
+/**
+ * Receives the spans of requests to the API as they end, for example to find out where the time of a slow
+ * trigger went, or to pass them on to a tracing system. Set with
+ * {@link com.pusher.rest.PusherAbstract#setTraceListener(TraceListener)}.
+ * <p>
+ * A request's child spans end before its {@link Span.Kind#REQUEST} span. Listeners are called from the threads
+ * making and completing requests, so must be thread safe, and should be quick and not throw.
+ *
+ * @see RingBufferTraceListener
+ */
+public interface TraceListener {
+
+    /**
+     * @param span the span which has ended
+     */
+    void onSpan(Span span);
+}
@@ -0,0 +1,98 @@
+package com.pusher.rest.transport;
+
+import com.pusher.rest.data.Result;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link Transport} using Apache HTTP Client (4 series), as used by {@link com.pusher.rest.Pusher}.
+ * <p>
+ * Requests are sent on the calling thread, so the future returned by {@link #send(TransportRequest)} is
+ * already complete.
+ */
+public class ApacheHttpTransport implements Transport {
+
+    private final CloseableHttpClient client;
+    private volatile int requestTimeout = 4000; // milliseconds
+
+    /**
+     * @param client the client to send requests with, which is closed when the transport is
+     */
+    public ApacheHttpTransport(final CloseableHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Default: 4000
+     *
+     * @param requestTimeout the connect, socket and connection request timeouts in milliseconds
+     */
+    public void setRequestTimeout(final int requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public CompletableFuture<Result> send(final TransportRequest request) {
+        final HttpRequestBase httpRequest;
+        switch (request.getMethod()) {
+            case "GET":
+                httpRequest = new HttpGet(request.getUri());
+                break;
+            case "POST":
+                final HttpPost post = new HttpPost(request.getUri());
+                if (request.getBody() != null) {
+                    final ByteArrayEntity bodyEntity = new ByteArrayEntity(request.getBody());
+                    bodyEntity.setContentType("application/json");
+                    post.setEntity(bodyEntity);
+                }
+                httpRequest = post;
+                break;
+            default:
+                throw new IllegalArgumentException("HTTP method [" + request.getMethod() + "] is not supported, only GET and POST");
+        }
+
+        return CompletableFuture.completedFuture(execute(httpRequest));
+    }
+
+    /**
+     * Send a request built with Apache HTTP Client directly.
+     *
+     * @param request the request to send
+     * @return the result of the request
+     */
+    public Result execute(final HttpRequestBase request) {
+        final RequestConfig config = RequestConfig.custom()
+                .setSocketTimeout(requestTimeout)
+                .setConnectionRequestTimeout(requestTimeout)
+                .setConnectTimeout(requestTimeout)
+                .build();
+        request.setConfig(config);
+
+        try {
+            final HttpResponse response = client.execute(request);
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            response.getEntity().writeTo(baos);
+            final String responseBody = new String(baos.toByteArray(), "UTF-8");
+
+            return Result.fromHttpCode(response.getStatusLine().getStatusCode(), responseBody);
+        }
+        catch (final IOException e) {
+            return Result.fromException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
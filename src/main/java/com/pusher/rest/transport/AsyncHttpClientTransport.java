@@ -0,0 +1,66 @@
+package com.pusher.rest.transport;
+
+import com.pusher.rest.data.Result;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.util.HttpConstants;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link Transport} using AsyncHttpClient (AHC), as used by {@link com.pusher.rest.PusherAsync}.
+ */
+public class AsyncHttpClientTransport implements Transport {
+
+    private final AsyncHttpClient client;
+
+    /**
+     * @param client the client to send requests with, which is closed when the transport is
+     */
+    public AsyncHttpClientTransport(final AsyncHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public CompletableFuture<Result> send(final TransportRequest request) {
+        final String method = request.getMethod();
+        if (!HttpConstants.Methods.GET.equals(method) && !HttpConstants.Methods.POST.equals(method)) {
+            throw new IllegalArgumentException("HTTP method [" + method + "] is not supported, only GET and POST");
+        }
+
+        final RequestBuilder builder = new RequestBuilder(method)
+                .setUrl(request.getUri().toString());
+        if (request.getBody() != null) {
+            builder.setBody(request.getBody())
+                    .addHeader("Content-Type", "application/json");
+        }
+
+        return execute(builder.build());
+    }
+
+    /**
+     * Send a request built with AsyncHttpClient directly.
+     *
+     * @param request the request to send
+     * @return the result of the request
+     */
+    public CompletableFuture<Result> execute(final Request request) {
+        return client
+                .prepareRequest(request)
+                .execute()
+                .toCompletableFuture()
+                .thenApply(response -> Result.fromHttpCode(response.getStatusCode(), response.getResponseBody(UTF_8)))
+                .exceptionally(Result::fromThrowable);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!client.isClosed()) {
+            client.close();
+        }
+    }
+}
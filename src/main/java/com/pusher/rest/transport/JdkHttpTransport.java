@@ -0,0 +1,97 @@
+package com.pusher.rest.transport;
+
+import com.pusher.rest.data.Result;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link Transport} using the JDK's {@link java.net.http.HttpClient}, as used by {@link com.pusher.rest.PusherHttp2}.
+ */
+public class JdkHttpTransport implements Transport {
+
+    private final HttpClient client;
+    private volatile Duration requestTimeout = Duration.ofMillis(4000);
+
+    /**
+     * @param client the client to send requests with
+     */
+    public JdkHttpTransport(final HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Default: 4000
+     *
+     * @param requestTimeout the request timeout in milliseconds
+     */
+    public void setRequestTimeout(final int requestTimeout) {
+        this.requestTimeout = Duration.ofMillis(requestTimeout);
+    }
+
+    @Override
+    public CompletableFuture<Result> send(final TransportRequest request) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .timeout(requestTimeout);
+        switch (request.getMethod()) {
+            case "GET":
+                builder.GET();
+                break;
+            case "POST":
+                if (request.getBody() == null) {
+                    builder.POST(HttpRequest.BodyPublishers.noBody());
+                } else {
+                    builder.header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(request.getBody()));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("HTTP method [" + request.getMethod() + "] is not supported, only GET and POST");
+        }
+
+        return execute(builder.build());
+    }
+
+    /**
+     * Send a request built with the JDK's HttpClient directly.
+     *
+     * @param request the request to send
+     * @return the result of the request
+     */
+    public CompletableFuture<Result> execute(final HttpRequest request) {
+        return client
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString(UTF_8))
+                .thenApply(response -> Result.fromHttpCode(response.statusCode(), response.body()))
+                .exceptionally(JdkHttpTransport::fromThrowable);
+    }
+
+    private static Result fromThrowable(final Throwable t) {
+        final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof IOException) {
+            return Result.fromException((IOException)cause);
+        }
+        return Result.fromThrowable(cause);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The client can only be closed from Java 21, before that it is released once unreachable
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable)client).close();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                // HttpClient.close() declares no checked exceptions
+                throw new IOException(e);
+            }
+        }
+    }
+}
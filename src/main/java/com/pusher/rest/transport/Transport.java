@@ -0,0 +1,38 @@
+package com.pusher.rest.transport;
+
+import com.pusher.rest.data.Result;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests to the Pusher API.
+ * <p>
+ * The clients sign each request before handing it to their transport, which sends it as it is and reports the
+ * HTTP status and body of the response, usually with {@link Result#fromHttpCode(int, String)}. Implement this
+ * to use an HTTP stack other than the ones the clients are built on, or to stand in for the API, for example
+ * in load tests.
+ * <p>
+ * Requests may be sent concurrently from many threads, so implementations must be threadsafe.
+ *
+ * @see ApacheHttpTransport
+ * @see AsyncHttpClientTransport
+ * @see JdkHttpTransport
+ */
+public interface Transport extends AutoCloseable {
+
+    /**
+     * @param request the signed request to send
+     * @return the result of the request. Failures to send it should be reported as a {@link Result} where
+     *         possible, a future which completes exceptionally gives a result of {@link Result.Status#UNKNOWN_ERROR},
+     *         or {@link Result.Status#NETWORK_ERROR} for an IOException.
+     */
+    CompletableFuture<Result> send(TransportRequest request);
+
+    /**
+     * Release the resources held by the transport. Called when the client using it is closed.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
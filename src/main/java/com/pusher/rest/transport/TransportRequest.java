@@ -0,0 +1,46 @@
+package com.pusher.rest.transport;
+
+import java.net.URI;
+
+/**
+ * A signed request to the Pusher API, see {@link Transport}.
+ */
+public final class TransportRequest {
+
+    private final String method;
+    private final URI uri;
+    private final byte[] body;
+
+    /**
+     * @param method the HTTP method, GET or POST
+     * @param uri    the signed URI
+     * @param body   the UTF-8 encoded JSON body, or null if there is none
+     */
+    public TransportRequest(final String method, final URI uri, final byte[] body) {
+        this.method = method;
+        this.uri = uri;
+        this.body = body;
+    }
+
+    /**
+     * @return the HTTP method, GET or POST. The transports in this library reject any other method with an
+     *         {@link IllegalArgumentException}.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the signed URI, including the authentication query parameters
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the UTF-8 encoded JSON body, or null if there is none. The array must not be modified, as it was signed.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -7,15 +7,24 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
 public final class Prerequisites {
 
-    private static final Pattern VALID_CHANNEL = Pattern.compile("\\A[-a-zA-Z0-9_=@,.;]+\\z");
-    private static final Pattern VALID_SOCKET_ID = Pattern.compile("\\A\\d+\\.\\d+\\z");
+    // The characters allowed in channel names, [-a-zA-Z0-9_=@,.;], indexed by ASCII code
+    private static final boolean[] CHANNEL_CHARS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) CHANNEL_CHARS[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) CHANNEL_CHARS[c] = true;
+        for (char c = '0'; c <= '9'; c++) CHANNEL_CHARS[c] = true;
+        for (final char c : "-_=@,.;".toCharArray()) CHANNEL_CHARS[c] = true;
+    }
+
+    // Channel names already found to be valid, indexed by hash; a slot holds whichever name was stored last
+    private static volatile String[] validChannelCache;
 
     private static final Set<String> RESERVED_QUERY_KEYS = new HashSet<String>(
             Arrays.asList(new String[] { "auth_key", "auth_timestamp", "auth_version", "auth_signature", "body_md5" }));
@@ -70,19 +79,77 @@ public final class Prerequisites {
     }
 
     public static void isValidChannel(final String channel) {
-        matchesRegex("channel", VALID_CHANNEL, channel);
+        nonNull("channel", channel);
+
+        final String[] cache = validChannelCache;
+        if (cache == null) {
+            if (!isChannelName(channel)) throw invalid("channel", channel);
+            return;
+        }
+
+        final int slot = channel.hashCode() & (cache.length - 1);
+        final String cached = cache[slot];
+        if (cached != null && cached.equals(channel)) {
+            return;
+        }
+        if (!isChannelName(channel)) throw invalid("channel", channel);
+        cache[slot] = channel;
     }
 
     public static void isValidSocketId(final String socketId) {
-        if (socketId != null) {
-            matchesRegex("socket_id", VALID_SOCKET_ID, socketId);
+        if (socketId != null && !isSocketId(socketId)) {
+            throw invalid("socket_id", socketId);
+        }
+    }
+
+    /**
+     * Remember up to this many channel names found to be valid, so that names which are published to
+     * repeatedly are checked with a single lookup. The cache is shared by all clients, and it holds each
+     * name until another with the same hash displaces it.
+     * <p>
+     * Default: 0, names are checked every time
+     *
+     * @param size the number of names to remember, rounded up to a power of two, or 0 to disable the cache
+     */
+    public static void setValidChannelCacheSize(final int size) {
+        if (size < 0 || size > 1 << 20) {
+            throw new IllegalArgumentException("size must be between 0 and 2^20");
         }
+        validChannelCache = size == 0 ? null : new String[size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1];
     }
 
-    private static void matchesRegex(final String name, final Pattern regex, final String toMatch) {
-        nonNull(name, toMatch);
-        if (!regex.matcher(toMatch).matches()) {
-            throw new IllegalArgumentException(name + " [" + toMatch + "] is not valid");
+    // Equivalent to matching \A[-a-zA-Z0-9_=@,.;]+\z
+    private static boolean isChannelName(final String channel) {
+        final int length = channel.length();
+        if (length == 0) {
+            return false;
         }
+        for (int i = 0; i < length; i++) {
+            final char c = channel.charAt(i);
+            if (c >= CHANNEL_CHARS.length || !CHANNEL_CHARS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Equivalent to matching \A\d+\.\d+\z
+    private static boolean isSocketId(final String socketId) {
+        final int length = socketId.length();
+        final int dot = socketId.indexOf('.');
+        if (dot < 1 || dot == length - 1) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = socketId.charAt(i);
+            if ((c < '0' || c > '9') && i != dot) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException invalid(final String name, final String value) {
+        return new IllegalArgumentException(name + " [" + value + "] is not valid");
     }
 }
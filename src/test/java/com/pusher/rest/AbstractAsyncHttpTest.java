@@ -0,0 +1,335 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.ChannelInfo;
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.metrics.InMemoryRequestMetrics;
+import com.pusher.rest.metrics.RequestMetrics.Phase;
+import com.pusher.rest.tracing.RingBufferTraceListener;
+import com.pusher.rest.tracing.Span;
+import com.pusher.rest.tracing.Span.Kind;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests which use a local server to check the response handling shared by the asynchronous clients
+ */
+public abstract class AbstractAsyncHttpTest<P extends PusherAbstract<CompletableFuture<Result>>> {
+
+    protected HttpServer server;
+    protected String url;
+
+    protected int responseStatus = 200;
+    protected String responseBody;
+    protected int failuresBeforeResponse = 0;
+    protected final AtomicInteger requestCount = new AtomicInteger();
+
+    protected P p;
+
+    /**
+     * @return a client for the app the tests use
+     */
+    protected abstract P newClient();
+
+    /**
+     * @return the result of a GET to {@link #url} made with the client's HTTP client directly
+     */
+    protected abstract CompletableFuture<Result> httpCall();
+
+    protected abstract void setRequestQueue(RequestQueue requestQueue);
+
+    @BeforeEach
+    public void setup() throws Exception {
+        server = ServerBootstrap.bootstrap()
+            .registerHandler("/*", (httpRequest, httpResponse, httpContext) -> {
+                final boolean fail = requestCount.incrementAndGet() <= failuresBeforeResponse;
+                httpResponse.setStatusCode(fail ? 503 : responseStatus);
+                if (responseBody != null) {
+                    httpResponse.setEntity(new StringEntity(responseBody));
+                }
+            })
+            .create();
+
+        server.start();
+
+        url = "http://" + server.getInetAddress().getHostName() + ":" + server.getLocalPort() + "/test";
+
+        p = newClient();
+        p.setHost(server.getInetAddress().getHostName() + ":" + server.getLocalPort());
+    }
+
+    @AfterEach
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void successReturnsOkAndBody() throws Exception {
+        responseStatus = 200;
+        responseBody = "{}";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status400ReturnsGenericErrorAndMessage() throws Exception {
+        responseStatus = 400;
+        responseBody = "A lolcat got all up in ur request";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.CLIENT_ERROR));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status401ReturnsAuthenticationErrorAndMessage() throws Exception {
+        responseStatus = 401;
+        responseBody = "Sorry, not in those shoes";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.AUTHENTICATION_ERROR));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status403ReturnsAuthenticationErrorAndMessage() throws Exception {
+        responseStatus = 403;
+        responseBody = "Sorry, not with all those friends";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.MESSAGE_QUOTA_EXCEEDED));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status404ReturnsNotFoundErrorAndMessage() throws Exception {
+        responseStatus = 404;
+        responseBody = "This is not the endpoint you are looking for";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.NOT_FOUND));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status500ReturnsServerErrorAndMessage() throws Exception {
+        responseStatus = 500;
+        responseBody = "Gary? Gary! It's still on fire!!";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void status503ReturnsServerErrorAndMessage() throws Exception {
+        responseStatus = 503;
+        responseBody = "Gary, did you once again restart all the back-ends at once?!";
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(result.getMessage(), is(responseBody));
+    }
+
+    @Test
+    public void retryableFailuresAreRetriedWhenEnabled() throws Exception {
+        failuresBeforeResponse = 2;
+        responseStatus = 200;
+        responseBody = "{}";
+        p.setRetryPolicy(fastRetries());
+
+        Result result = p.get("/channels").get();
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void retriesStopAtTheMaximum() throws Exception {
+        failuresBeforeResponse = 10;
+        final RetryPolicy retryPolicy = fastRetries();
+        retryPolicy.setMaxRetries(2);
+        p.setRetryPolicy(retryPolicy);
+
+        Result result = p.get("/channels").get();
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void nonRetryableFailuresAreNotRetried() throws Exception {
+        responseStatus = 400;
+        p.setRetryPolicy(fastRetries());
+
+        Result result = p.get("/channels").get();
+        assertThat(result.getStatus(), is(Status.CLIENT_ERROR));
+        assertThat(requestCount.get(), is(1));
+    }
+
+    @Test
+    public void failuresAreNotRetriedByDefault() throws Exception {
+        failuresBeforeResponse = 1;
+
+        Result result = p.get("/channels").get();
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(requestCount.get(), is(1));
+    }
+
+    @Test
+    public void openCircuitFailsFastWithoutSendingRequests() throws Exception {
+        failuresBeforeResponse = 2;
+        final CircuitBreaker circuitBreaker = new CircuitBreaker();
+        circuitBreaker.setWindow(2, 2);
+        p.setCircuitBreaker(circuitBreaker);
+
+        assertThat(p.get("/channels").get().getStatus(), is(Status.SERVER_ERROR));
+        assertThat(p.get("/channels").get().getStatus(), is(Status.SERVER_ERROR));
+
+        Result result = p.get("/channels").get();
+        assertThat(result.getStatus(), is(Status.CIRCUIT_OPEN));
+        assertThat(requestCount.get(), is(2));
+    }
+
+    @Test
+    public void rateLimitedMessagesAreNotSent() throws Exception {
+        final RateLimiter rateLimiter = new RateLimiter(0.001, 3);
+        rateLimiter.setMode(RateLimiter.Mode.FAIL_FAST);
+        p.setRateLimiter(rateLimiter);
+
+        assertThat(p.trigger(Arrays.asList("a", "b"), "event", "data").get().getStatus(), is(Status.SUCCESS));
+
+        // Each event in a batch counts
+        final List<Event> batch = Arrays.asList(new Event("a", "event", "data"), new Event("b", "event", "data"));
+        assertThat(p.trigger(batch).get().getStatus(), is(Status.RATE_LIMITED));
+        assertThat(p.trigger("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+
+        // Queries don't
+        assertThat(p.get("/channels").get().getStatus(), is(Status.SUCCESS));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void rateLimitedMessagesWaitForTokens() throws Exception {
+        p.setRateLimiter(new RateLimiter(20, 1));
+
+        final long start = System.nanoTime();
+        assertThat(p.trigger("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+        assertThat(p.trigger("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(40L));
+        assertThat(requestCount.get(), is(2));
+    }
+
+    @Test
+    public void rateLimiterBacksOffWhenTheQuotaIsExceeded() throws Exception {
+        responseStatus = 403;
+        final RateLimiter rateLimiter = new RateLimiter(100, 10);
+        p.setRateLimiter(rateLimiter);
+
+        assertThat(p.trigger("a", "event", "data").get().getStatus(), is(Status.MESSAGE_QUOTA_EXCEEDED));
+        assertThat(rateLimiter.getRate(), is(50.0));
+    }
+
+    @Test
+    public void queuedRequestsAreAllSent() throws Exception {
+        final RequestQueue requestQueue = new RequestQueue(1, 10);
+        setRequestQueue(requestQueue);
+
+        final List<CompletableFuture<Result>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(p.trigger("a", "event", "data"));
+        }
+
+        for (final CompletableFuture<Result> result : results) {
+            assertThat(result.get().getStatus(), is(Status.SUCCESS));
+        }
+        assertThat(requestCount.get(), is(5));
+        assertThat(requestQueue.getInFlight(), is(0));
+    }
+
+    @Test
+    public void requestMetricsAreRecordedBeforeTheResultIsReturned() throws Exception {
+        final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+        p.setRequestMetrics(metrics);
+
+        p.trigger("my-channel", "event", "data").get();
+        p.get("/channels").get();
+
+        assertThat(metrics.getCount("/events", Status.SUCCESS), is(1L));
+        assertThat(metrics.getCount("/channels", Status.SUCCESS), is(1L));
+        assertThat(metrics.getTime("/events", Phase.SIGN) > 0, is(true));
+    }
+
+    @Test
+    public void triggerIsTracedBeforeTheResultIsReturned() throws Exception {
+        final RingBufferTraceListener traces = new RingBufferTraceListener(64);
+        p.setTraceListener(traces);
+
+        p.trigger("my-channel", "event", "data").get();
+
+        assertThat(kinds(traces.dump()), is(Arrays.asList(Kind.VALIDATE, Kind.SERIALISE, Kind.SERIALISE, Kind.SIGN, Kind.SEND, Kind.REQUEST)));
+    }
+
+    private static List<Kind> kinds(final List<Span> spans) {
+        final List<Kind> kinds = new ArrayList<>();
+        for (final Span span : spans) {
+            kinds.add(span.getKind());
+        }
+        return kinds;
+    }
+
+    @Test
+    public void channelInfoIsPassedOnBeforeTheResultIsReturned() throws Exception {
+        responseBody = "{\"occupied\":true,\"user_count\":7}";
+
+        final List<ChannelInfo> channels = new ArrayList<>();
+        final Result result = p.getChannelInfo("presence-room", Collections.singletonList("user_count"), channels::add).get();
+
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(channels.size(), is(1));
+        assertThat(channels.get(0).getUserCount(), is(7));
+        assertThat(channels.get(0).getOccupied(), is(true));
+    }
+
+    @Test
+    public void concurrentIdenticalQueriesAreSentOnce() throws Exception {
+        responseBody = "{\"channels\":{}}";
+        final QueryCache cache = new QueryCache(60000, 100);
+        p.setQueryCache(cache);
+
+        final List<CompletableFuture<Result>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(p.get("/channels"));
+        }
+
+        for (final CompletableFuture<Result> result : results) {
+            assertThat(result.get().getMessage(), is(responseBody));
+        }
+        assertThat(requestCount.get(), is(1));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    private RetryPolicy fastRetries() {
+        final RetryPolicy retryPolicy = new RetryPolicy();
+        retryPolicy.setInitialBackoff(1);
+        return retryPolicy;
+    }
+}
@@ -0,0 +1,66 @@
+package com.pusher.rest;
+
+import com.google.gson.JsonParseException;
+import com.pusher.rest.data.ChannelInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ChannelQueryParserTest {
+
+    @Test
+    public void channelsArePassedOnInOrder() {
+        final List<ChannelInfo> channels = new ArrayList<>();
+        ChannelQueryParser.channels(new StringReader(
+                "{\"channels\":{\"presence-a\":{\"user_count\":3,\"unknown\":[1,{}]},\"presence-b\":{}}}"), channels::add);
+
+        assertThat(channels.size(), is(2));
+        assertThat(channels.get(0).getName(), is("presence-a"));
+        assertThat(channels.get(0).getUserCount(), is(3));
+        assertThat(channels.get(0).getOccupied(), is(true));
+        assertThat(channels.get(1).getName(), is("presence-b"));
+        assertThat(channels.get(1).getUserCount() == null, is(true));
+    }
+
+    @Test
+    public void emptyChannelListPassesNothingOn() {
+        final List<ChannelInfo> channels = new ArrayList<>();
+        ChannelQueryParser.channels(new StringReader("{\"channels\":{}}"), channels::add);
+
+        assertThat(channels.isEmpty(), is(true));
+    }
+
+    @Test
+    public void channelInfoIsParsed() {
+        final ChannelInfo channel = ChannelQueryParser.channel(new StringReader(
+                "{\"occupied\":true,\"user_count\":42,\"subscription_count\":50}"), "presence-room");
+
+        assertThat(channel.getName(), is("presence-room"));
+        assertThat(channel.getOccupied(), is(true));
+        assertThat(channel.getUserCount(), is(42));
+        assertThat(channel.getSubscriptionCount(), is(50));
+    }
+
+    @Test
+    public void userIdsArePassedOnAsStrings() {
+        final List<String> ids = new ArrayList<>();
+        ChannelQueryParser.users(new StringReader("{\"users\":[{\"id\":\"a\"},{\"id\":2},{\"id\":\"c\",\"x\":1}]}"), ids::add);
+
+        assertThat(ids, is(Arrays.asList("a", "2", "c")));
+    }
+
+    @Test
+    public void malformedResponsesAreRejected() {
+        Assertions.assertThrows(JsonParseException.class,
+                () -> ChannelQueryParser.channels(new StringReader("{\"channels\":[]}"), c -> { }));
+        Assertions.assertThrows(JsonParseException.class,
+                () -> ChannelQueryParser.users(new StringReader("{\"users\":[{\"id\":"), id -> { }));
+    }
+}
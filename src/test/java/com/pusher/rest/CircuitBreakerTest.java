@@ -0,0 +1,147 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pusher.rest.CircuitBreaker.State;
+import com.pusher.rest.data.Result.Status;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CircuitBreakerTest {
+
+    private long now = 0;
+    private final CircuitBreaker breaker = new CircuitBreaker(() -> now);
+
+    @BeforeEach
+    public void setup() {
+        breaker.setWindow(10, 4);
+        breaker.setOpenDuration(1000);
+        breaker.setHalfOpenProbes(2);
+    }
+
+    @Test
+    public void opensWhenTheFailureRateReachesTheThreshold() {
+        call(Status.SUCCESS);
+        call(Status.SERVER_ERROR);
+        call(Status.SUCCESS);
+        assertThat(breaker.getState(), is(State.CLOSED));
+
+        call(Status.NETWORK_ERROR);
+        assertThat(breaker.getState(), is(State.OPEN));
+        assertThat(breaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void doesNotOpenBeforeTheMinimumNumberOfCalls() {
+        call(Status.SERVER_ERROR);
+        call(Status.SERVER_ERROR);
+        call(Status.SERVER_ERROR);
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+    }
+
+    @Test
+    public void clientErrorsDoNotCountAsFailures() {
+        for (int i = 0; i < 10; i++) {
+            call(Status.CLIENT_ERROR);
+            call(Status.MESSAGE_QUOTA_EXCEEDED);
+        }
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        breaker.setFailureRateThreshold(0.3);
+        repeat(Status.SUCCESS, 8);
+        repeat(Status.SERVER_ERROR, 2);
+        repeat(Status.SUCCESS, 8);
+
+        // Only the two most recent failures are still in the window
+        repeat(Status.SERVER_ERROR, 2);
+        assertThat(breaker.getState(), is(State.CLOSED));
+
+        call(Status.SERVER_ERROR);
+        assertThat(breaker.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void opensOnSlowCallsWhenEnabled() {
+        breaker.setSlowCallThreshold(500, 0.5);
+
+        call(Status.SUCCESS, 100);
+        call(Status.SUCCESS, 600);
+        call(Status.SUCCESS, 100);
+        assertThat(breaker.getState(), is(State.CLOSED));
+
+        call(Status.SUCCESS, 500);
+        assertThat(breaker.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void halfOpenProbesCloseTheCircuitWhenTheySucceed() {
+        open();
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+
+        assertThat(breaker.tryAcquire(), is(true));
+        assertThat(breaker.tryAcquire(), is(true));
+        assertThat(breaker.tryAcquire(), is(false));
+
+        breaker.record(Status.SUCCESS, 0);
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+        breaker.record(Status.SUCCESS, 0);
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(breaker.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void aFailedProbeReopensTheCircuit() {
+        open();
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        assertThat(breaker.tryAcquire(), is(true));
+        breaker.record(Status.SERVER_ERROR, 0);
+
+        assertThat(breaker.getState(), is(State.OPEN));
+        now += TimeUnit.MILLISECONDS.toNanos(999);
+        assertThat(breaker.tryAcquire(), is(false));
+        now += TimeUnit.MILLISECONDS.toNanos(1);
+        assertThat(breaker.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> breaker.setFailureRateThreshold(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> breaker.setWindow(10, 11));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> breaker.setHalfOpenProbes(0));
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(Status.SERVER_ERROR);
+        }
+        assertThat(breaker.getState(), is(State.OPEN));
+    }
+
+    private void repeat(final Status status, final int times) {
+        for (int i = 0; i < times; i++) {
+            call(status);
+        }
+    }
+
+    private void call(final Status status) {
+        call(status, 0);
+    }
+
+    private void call(final Status status, final long latency) {
+        assertThat(breaker.tryAcquire(), is(true));
+        breaker.record(status, latency);
+    }
+}
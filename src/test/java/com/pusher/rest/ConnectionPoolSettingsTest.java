@@ -0,0 +1,22 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolSettingsTest {
+
+    private final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+
+    @Test
+    public void perRouteLimitCannotExceedTheTotal() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.setMaxConnections(10, 11));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.setMaxConnections(0, 0));
+    }
+
+    @Test
+    public void durationsMustNotBeNegative() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.setIdleTimeout(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.setValidateAfterInactivity(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.setTimeToLive(-1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class HmacSignerTest {
+
+    private final HmacSigner signer = new HmacSigner(PusherTest.SECRET);
+
+    @Test
+    public void matchesSignatureUtil() {
+        assertThat(signer.sign("1234.1234:private-foobar"), is(SignatureUtil.sign("1234.1234:private-foobar", PusherTest.SECRET)));
+        assertThat(signer.sign(""), is(SignatureUtil.sign("", PusherTest.SECRET)));
+        assertThat(signer.sign("\u00fcnicode \u2603"), is(SignatureUtil.sign("\u00fcnicode \u2603", PusherTest.SECRET)));
+    }
+
+    @Test
+    public void repeatedCallsOnOneThreadAreIndependent() {
+        final String first = signer.sign("a");
+        signer.sign("b");
+
+        assertThat(signer.sign("a"), is(first));
+    }
+
+    @Test
+    public void concurrentCallsAgree() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final String input = "input-" + (i % 10);
+                futures.add(executor.submit(() -> signer.sign(input)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).get(), is(SignatureUtil.sign("input-" + (i % 10), PusherTest.SECRET)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void emptySecretIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HmacSigner(""));
+    }
+}
@@ -0,0 +1,118 @@
+package com.pusher.rest;
+
+import com.pusher.rest.crypto.CryptoUtil;
+import com.pusher.rest.crypto.nacl.SecretBox;
+import com.pusher.rest.data.EncryptedMessage;
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.EventBatch;
+import com.pusher.rest.data.TriggerData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class JsonBodyWriterTest {
+
+    private static final String AWKWARD_DATA = "{\"quote\":\"\\\"<tag>&amp;\\u2028\\n\u00fc\u2603\u2028\u0001\"}";
+
+    @Test
+    public void triggerMatchesGson() {
+        final List<String> channels = Arrays.asList("my-channel", "other-channel");
+
+        assertThat(utf8(JsonBodyWriter.trigger(channels, "my-event", AWKWARD_DATA.getBytes(StandardCharsets.UTF_8), null)),
+                is(PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, "my-event", AWKWARD_DATA, null))));
+        assertThat(utf8(JsonBodyWriter.trigger(channels, "my-event", AWKWARD_DATA.getBytes(StandardCharsets.UTF_8), "123.456")),
+                is(PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, "my-event", AWKWARD_DATA, "123.456"))));
+    }
+
+    @Test
+    public void batchMatchesGson() {
+        final List<Event> batch = Arrays.asList(
+                new Event("my-channel", "event-1", AWKWARD_DATA),
+                new Event("my-channel", "event-2", "\"plain\"", "123.456"));
+
+        final List<byte[]> data = Arrays.asList(
+                AWKWARD_DATA.getBytes(StandardCharsets.UTF_8),
+                "\"plain\"".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(utf8(JsonBodyWriter.batch(batch, data)),
+                is(PusherAbstract.BODY_SERIALISER.toJson(new EventBatch(batch))));
+    }
+
+    @Test
+    public void encryptedDataMatchesGson() {
+        final CryptoUtil crypto = new CryptoUtil(PusherTest.VALID_MASTER_KEY);
+        final List<String> channels = Arrays.asList("private-encrypted-channel");
+
+        // Cover each length of base64 padding
+        for (final String message : Arrays.asList("{}", "\"a\"", "[1]2")) {
+            final EncryptedMessage sealed = crypto.encrypt(channels.get(0), message.getBytes(StandardCharsets.UTF_8));
+            final String expectedData = PusherAbstract.BODY_SERIALISER.toJson(
+                    new EncryptedMessage(sealed.getNonce(), sealed.getCiphertext()));
+
+            assertThat(utf8(JsonBodyWriter.trigger(channels, "my-event", sealed, null)),
+                    is(PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, "my-event", expectedData, null))));
+        }
+    }
+
+    @Test
+    public void dataSealedInPlaceMatchesGson() {
+        final CryptoUtil crypto = new CryptoUtil(PusherTest.VALID_MASTER_KEY);
+        final List<String> channels = Arrays.asList("private-encrypted-channel");
+
+        // Cover each length of base64 padding
+        for (final String message : Arrays.asList("{}", "\"a\"", "[1]2")) {
+            final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            final byte[] buffer = new byte[SecretBox.MESSAGE_OFFSET + bytes.length];
+            System.arraycopy(bytes, 0, buffer, SecretBox.MESSAGE_OFFSET, bytes.length);
+
+            final byte[] nonce = crypto.encryptInPlace(channels.get(0), buffer, bytes.length);
+            final int ciphertextLength = CryptoUtil.ciphertextLength(bytes.length);
+            final String expectedData = PusherAbstract.BODY_SERIALISER.toJson(
+                    new EncryptedMessage(nonce, buffer, SecretBox.CIPHERTEXT_OFFSET, ciphertextLength));
+
+            assertThat(utf8(JsonBodyWriter.trigger(channels, "my-event", new SealedMessage(nonce, buffer, SecretBox.CIPHERTEXT_OFFSET, ciphertextLength), null)),
+                    is(PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, "my-event", expectedData, null))));
+        }
+    }
+
+    @Test
+    public void encryptedDataFromStringsMatchesGson() {
+        final List<String> channels = Arrays.asList("private-encrypted-channel");
+        final EncryptedMessage message = new EncryptedMessage("bm9uY2U=", "Y2lwaGVydGV4dA==");
+
+        assertThat(utf8(JsonBodyWriter.trigger(channels, "my-event", message, null)),
+                is(PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, "my-event",
+                        "{\"nonce\":\"bm9uY2U=\",\"ciphertext\":\"Y2lwaGVydGV4dA==\"}", null))));
+    }
+
+    @Test
+    public void stringFieldsAreEncodedAsGsonWould() {
+        final List<String> channels = Arrays.asList("my-channel");
+        final String eventName = "\u00fc\u2603\ud83d\ude00\u2029\t\"\\<>\ud800";
+
+        final String gsonBody = PusherAbstract.BODY_SERIALISER.toJson(new TriggerData(channels, eventName, "", null));
+
+        // Compared as bytes, since the unpaired surrogate only becomes '?' once encoded
+        assertThat(JsonBodyWriter.trigger(channels, eventName, new byte[0], null),
+                is(gsonBody.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void consecutiveBodiesDoNotShareState() {
+        final List<String> channels = Arrays.asList("my-channel");
+        final byte[] first = JsonBodyWriter.trigger(channels, "my-event", "\"a long first body\"".getBytes(StandardCharsets.UTF_8), null);
+        final byte[] second = JsonBodyWriter.trigger(channels, "e", "1".getBytes(StandardCharsets.UTF_8), null);
+
+        assertThat(utf8(first), is("{\"channels\":[\"my-channel\"],\"name\":\"my-event\",\"data\":\"\\\"a long first body\\\"\"}"));
+        assertThat(utf8(second), is("{\"channels\":[\"my-channel\"],\"name\":\"e\",\"data\":\"1\"}"));
+    }
+
+    private static String utf8(final byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -5,6 +5,7 @@ import com.pusher.rest.util.PusherNoHttp;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -117,6 +118,42 @@ public class PusherChannelAuthTest {
                 is("{\"auth\":\"278d425bdf160c739803:afaed3695da2ffd16931f457e338e6c9f2921fa133ce7dac49f529792be6304c\",\"channel_data\":\"{\\\"user_id\\\":10,\\\"user_info\\\":{\\\"name\\\":\\\"Mr. Pusher\\\"}}\"}"));
     }
 
+    @Test
+    public void bulkPresenceChannelAuth() {
+        final PresenceUser user = new PresenceUser(Integer.valueOf(10), Collections.singletonMap("name", "Mr. Pusher"));
+
+        assertThat(p.authenticate("1234.1234", Arrays.asList("presence-foobar", "presence-quux"), user),
+                is("{\"presence-foobar\":{\"status\":200,\"data\":" + p.authenticate("1234.1234", "presence-foobar", user) + "},"
+                        + "\"presence-quux\":{\"status\":200,\"data\":" + p.authenticate("1234.1234", "presence-quux", user) + "}}"));
+    }
+
+    @Test
+    public void bulkPresenceChannelAuthEscapesUserData() {
+        final PresenceUser user = new PresenceUser("dave", Collections.singletonMap("quote", "\"hi\"\n\u00e9\u2028"));
+
+        assertThat(p.authenticate("1.1", Collections.singletonList("presence-a"), user),
+                is("{\"presence-a\":{\"status\":200,\"data\":" + p.authenticate("1.1", "presence-a", user) + "}}"));
+    }
+
+    @Test
+    public void bulkPresenceChannelAuthNoChannels() {
+        assertThat(p.authenticate("1.1", Collections.<String>emptyList(), new PresenceUser("dave")), is("{}"));
+    }
+
+    @Test
+    public void bulkPresenceChannelAuthRejectsPrivateChannel() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            p.authenticate("1234.1234", Arrays.asList("presence-foobar", "private-foobar"), new PresenceUser("dave"));
+        });
+    }
+
+    @Test
+    public void bulkPresenceChannelAuthRejectsInvalidChannel() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            p.authenticate("1234.1234", Arrays.asList("presence-foobar", "presence-foo:bar"), new PresenceUser("dave"));
+        });
+    }
+
     @Test
     public void presenceChannelWrongPrefix() {
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
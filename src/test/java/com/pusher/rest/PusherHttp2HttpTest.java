@@ -0,0 +1,43 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests which use a local server to check response handling
+ */
+public class PusherHttp2HttpTest extends AbstractAsyncHttpTest<PusherHttp2> {
+
+    @Override
+    protected PusherHttp2 newClient() {
+        return new PusherHttp2(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+    }
+
+    @Override
+    protected CompletableFuture<Result> httpCall() {
+        return p.httpCall(HttpRequest.newBuilder(URI.create(url)).build());
+    }
+
+    @Override
+    protected void setRequestQueue(final RequestQueue requestQueue) {
+        p.setRequestQueue(requestQueue);
+    }
+
+    @Test
+    public void connectionRefusedReturnsNetworkError() throws Exception {
+        server.stop(); // don't listen for this test
+
+        Result result = httpCall().get();
+        assertThat(result.getStatus(), is(Status.NETWORK_ERROR));
+        assertThat(result.getMessage(), containsString("ConnectException"));
+    }
+}
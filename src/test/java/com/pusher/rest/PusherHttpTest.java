@@ -7,12 +7,33 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.bootstrap.HttpServer;
 import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.ChannelInfo;
 import com.pusher.rest.data.Result;
 import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.data.WarmUpResult;
+import com.pusher.rest.metrics.InMemoryRequestMetrics;
+import com.pusher.rest.metrics.RequestMetrics.Phase;
+import com.pusher.rest.tracing.RingBufferTraceListener;
+import com.pusher.rest.tracing.Span;
+import com.pusher.rest.tracing.Span.Kind;
 
 /**
  * Tests which use a local server to check response handling
@@ -24,6 +45,8 @@ public class PusherHttpTest {
 
     private int responseStatus = 200;
     private String responseBody;
+    private int failuresBeforeResponse = 0;
+    private final AtomicInteger requestCount = new AtomicInteger();
 
     private Pusher p;
 
@@ -31,7 +54,8 @@ public class PusherHttpTest {
     public void setup() throws Exception {
         server = ServerBootstrap.bootstrap()
             .registerHandler("/*", (httpRequest, httpResponse, httpContext) -> {
-                httpResponse.setStatusCode(responseStatus);
+                final boolean fail = requestCount.incrementAndGet() <= failuresBeforeResponse;
+                httpResponse.setStatusCode(fail ? 503 : responseStatus);
                 if (responseBody != null) {
                     httpResponse.setEntity(new StringEntity(responseBody));
                 }
@@ -42,6 +66,7 @@ public class PusherHttpTest {
         request = new HttpGet("http://" + server.getInetAddress().getHostName() + ":" + server.getLocalPort() + "/test");
 
         p = new Pusher(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        p.setHost(server.getInetAddress().getHostName() + ":" + server.getLocalPort());
     }
 
     @AfterEach
@@ -127,4 +152,392 @@ public class PusherHttpTest {
         assertThat(result.getStatus(), is(Status.NETWORK_ERROR));
         assertThat(result.getMessage(), containsString("Connection refused"));
     }
+
+    @Test
+    public void retryableFailuresAreRetriedWhenEnabled() {
+        failuresBeforeResponse = 2;
+        responseStatus = 200;
+        responseBody = "{}";
+        p.setRetryPolicy(fastRetries());
+
+        Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void retriesStopAtTheMaximum() {
+        failuresBeforeResponse = 10;
+        final RetryPolicy retryPolicy = fastRetries();
+        retryPolicy.setMaxRetries(2);
+        p.setRetryPolicy(retryPolicy);
+
+        Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void nonRetryableFailuresAreNotRetried() {
+        responseStatus = 400;
+        p.setRetryPolicy(fastRetries());
+
+        Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.CLIENT_ERROR));
+        assertThat(requestCount.get(), is(1));
+    }
+
+    @Test
+    public void failuresAreNotRetriedByDefault() {
+        failuresBeforeResponse = 1;
+
+        Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.SERVER_ERROR));
+        assertThat(requestCount.get(), is(1));
+    }
+
+    @Test
+    public void openCircuitFailsFastWithoutSendingRequests() {
+        failuresBeforeResponse = 2;
+        final CircuitBreaker circuitBreaker = new CircuitBreaker();
+        circuitBreaker.setWindow(2, 2);
+        p.setCircuitBreaker(circuitBreaker);
+
+        assertThat(p.get("/channels").getStatus(), is(Status.SERVER_ERROR));
+        assertThat(p.get("/channels").getStatus(), is(Status.SERVER_ERROR));
+
+        Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.CIRCUIT_OPEN));
+        assertThat(requestCount.get(), is(2));
+    }
+
+    @Test
+    public void rateLimitedMessagesAreNotSent() {
+        final RateLimiter rateLimiter = new RateLimiter(0.001, 3);
+        rateLimiter.setMode(RateLimiter.Mode.FAIL_FAST);
+        p.setRateLimiter(rateLimiter);
+
+        assertThat(p.trigger(Arrays.asList("a", "b"), "event", "data").getStatus(), is(Status.SUCCESS));
+
+        // Each event in a batch counts
+        final List<Event> batch = Arrays.asList(new Event("a", "event", "data"), new Event("b", "event", "data"));
+        assertThat(p.trigger(batch).getStatus(), is(Status.RATE_LIMITED));
+        assertThat(p.trigger("a", "event", "data").getStatus(), is(Status.SUCCESS));
+
+        // Queries don't
+        assertThat(p.get("/channels").getStatus(), is(Status.SUCCESS));
+        assertThat(requestCount.get(), is(3));
+    }
+
+    @Test
+    public void rateLimitedMessagesWaitForTokens() {
+        p.setRateLimiter(new RateLimiter(20, 1));
+
+        final long start = System.nanoTime();
+        assertThat(p.trigger("a", "event", "data").getStatus(), is(Status.SUCCESS));
+        assertThat(p.trigger("a", "event", "data").getStatus(), is(Status.SUCCESS));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(40L));
+        assertThat(requestCount.get(), is(2));
+    }
+
+    @Test
+    public void rateLimiterBacksOffWhenTheQuotaIsExceeded() {
+        responseStatus = 403;
+        final RateLimiter rateLimiter = new RateLimiter(100, 10);
+        p.setRateLimiter(rateLimiter);
+
+        assertThat(p.trigger("a", "event", "data").getStatus(), is(Status.MESSAGE_QUOTA_EXCEEDED));
+        assertThat(rateLimiter.getRate(), is(50.0));
+    }
+
+    @Test
+    public void triggerAsyncRunsOnTheAsyncExecutor() throws Exception {
+        final List<String> threads = new ArrayList<>();
+        p.setAsyncExecutor(task -> {
+            final Thread thread = new Thread(task, "test-executor");
+            threads.add(thread.getName());
+            thread.start();
+        });
+
+        final Result result = p.triggerAsync("a", "event", "data").get();
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(threads, is(Arrays.asList("test-executor")));
+    }
+
+    @Test
+    public void triggerAsyncHasADefaultExecutor() throws Exception {
+        final List<Event> batch = Arrays.asList(new Event("a", "event", "data"), new Event("b", "event", "data"));
+
+        assertThat(p.triggerAsync(batch).get().getStatus(), is(Status.SUCCESS));
+        assertThat(p.triggerAsync(Arrays.asList("a", "b"), "event", "data", "1.1").get().getStatus(), is(Status.SUCCESS));
+        assertThat(requestCount.get(), is(2));
+    }
+
+    @Test
+    public void defaultAsyncExecutorRaisesTheDefaultPoolLimit() throws Exception {
+        assertThat(p.getConnectionPoolStats().getMax(), is(20));
+
+        assertThat(p.triggerAsync("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+        assertThat(p.getConnectionPoolStats().getMax(), is(Pusher.DEFAULT_ASYNC_MAX_CONNECTIONS));
+    }
+
+    @Test
+    public void defaultAsyncExecutorLeavesAConfiguredPoolAlone() throws Exception {
+        final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+        pool.setMaxConnections(8, 4);
+        p.setConnectionPool(pool);
+
+        assertThat(p.triggerAsync("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+        assertThat(p.getConnectionPoolStats().getMax(), is(8));
+    }
+
+    @Test
+    public void customAsyncExecutorLeavesTheDefaultPoolAlone() throws Exception {
+        p.setAsyncExecutor(Runnable::run);
+
+        assertThat(p.triggerAsync("a", "event", "data").get().getStatus(), is(Status.SUCCESS));
+        assertThat(p.getConnectionPoolStats().getMax(), is(20));
+    }
+
+    @Test
+    public void triggerAsyncCompletesExceptionallyForInvalidArguments() {
+        final CompletableFuture<Result> result = p.triggerAsync("invalid channel", "event", "data");
+
+        final ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+        assertThat(e.getCause() instanceof IllegalArgumentException, is(true));
+    }
+
+    @Test
+    public void virtualThreadsAreAvailableFromJava21() {
+        assertThat(Pusher.virtualThreadsAvailable(), is(Runtime.version().feature() >= 21));
+
+        if (!Pusher.virtualThreadsAvailable()) {
+            Assertions.assertThrows(UnsupportedOperationException.class, Pusher::virtualThreadExecutor);
+        }
+    }
+
+    @Test
+    public void connectionPoolStatsReflectTheConfiguredPool() {
+        final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+        pool.setMaxConnections(8, 4);
+        pool.setIdleTimeout(30000);
+        pool.setTimeToLive(60000);
+        p.setConnectionPool(pool);
+
+        assertThat(p.get("/channels").getStatus(), is(Status.SUCCESS));
+
+        final PoolStats stats = p.getConnectionPoolStats();
+        assertThat(stats.getMax(), is(8));
+        assertThat(stats.getLeased(), is(0));
+        assertThat(stats.getPending(), is(0));
+        assertThat(stats.getAvailable(), is(1));
+    }
+
+    @Test
+    public void connectionPoolStatsAreUnknownForOtherBuilders() {
+        p.configureHttpClient(HttpClientBuilder.create());
+
+        assertThat(p.getConnectionPoolStats() == null, is(true));
+    }
+
+    @Test
+    public void connectionPoolStatsAreThoseOfTheGivenConnectionManager() {
+        final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+        pool.setMaxConnections(6, 3);
+        final PoolingHttpClientConnectionManager connectionManager = Pusher.newConnectionManager(pool);
+        p.configureHttpClient(Pusher.defaultHttpClientBuilder(), connectionManager);
+
+        assertThat(p.get("/channels").getStatus(), is(Status.SUCCESS));
+        assertThat(p.getConnectionPoolStats().getMax(), is(6));
+        assertThat(p.getConnectionPoolStats().getAvailable(), is(1));
+    }
+
+    @Test
+    public void connectionPoolStatsAreUnknownWhenTheConnectionManagerIsReplaced() {
+        final HttpClientBuilder builder = Pusher.defaultHttpClientBuilder(new ConnectionPoolSettings());
+        builder.setConnectionManager(new PoolingHttpClientConnectionManager());
+        p.configureHttpClient(builder);
+
+        assertThat(p.getConnectionPoolStats() == null, is(true));
+    }
+
+    @Test
+    public void warmUpOpensPooledConnections() {
+        final ConnectionPoolSettings pool = new ConnectionPoolSettings();
+        pool.setMaxConnections(4, 4);
+        p.setConnectionPool(pool);
+
+        final WarmUpResult result = p.warmUp(3);
+
+        assertThat(result.getRequested(), is(3));
+        assertThat(result.getResponded(), is(3));
+        assertThat(result.getDuration(), greaterThanOrEqualTo(0L));
+        assertThat(requestCount.get(), is(3));
+        assertThat(p.getConnectionPoolStats().getAvailable(), allOf(greaterThanOrEqualTo(1), lessThanOrEqualTo(3)));
+    }
+
+    @Test
+    public void warmUpRejectsFewerThanOneConnection() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> p.warmUp(0));
+    }
+
+    @Test
+    public void requestMetricsAreRecordedByEndpointAndStatus() {
+        final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+        p.setRequestMetrics(metrics);
+
+        p.trigger("my-channel", "event", Collections.singletonMap("a", "b"));
+        p.trigger(Arrays.asList(new Event("a", "event", "data"), new Event("b", "event", "data")));
+        p.get("/channels/presence-room/users");
+        responseStatus = 500;
+        p.trigger("my-channel", "event", "data");
+
+        assertThat(metrics.getCount("/events", Status.SUCCESS), is(1L));
+        assertThat(metrics.getCount("/events", Status.SERVER_ERROR), is(1L));
+        assertThat(metrics.getCount("/batch_events", Status.SUCCESS), is(1L));
+        assertThat(metrics.getCount("/channels/{channel}/users", Status.SUCCESS), is(1L));
+        assertThat(metrics.getPayloadBytes("/events", Status.SUCCESS) > 0, is(true));
+        assertThat(metrics.getPayloadBytes("/channels/{channel}/users", Status.SUCCESS), is(0L));
+        assertThat(metrics.getLatency("/events", Status.SUCCESS).getMax() > 0, is(true));
+        assertThat(metrics.getTime("/events", Phase.SERIALISE) > 0, is(true));
+        assertThat(metrics.getTime("/batch_events", Phase.SIGN) > 0, is(true));
+    }
+
+    @Test
+    public void requestsCutShortByPoliciesAreRecorded() {
+        final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+        p.setRequestMetrics(metrics);
+        final RateLimiter rateLimiter = new RateLimiter(1, 1);
+        rateLimiter.setMode(RateLimiter.Mode.FAIL_FAST);
+        p.setRateLimiter(rateLimiter);
+
+        p.trigger("my-channel", "event", "data");
+        p.trigger("my-channel", "event", "data");
+
+        assertThat(metrics.getCount("/events", Status.SUCCESS), is(1L));
+        assertThat(metrics.getCount("/events", Status.RATE_LIMITED), is(1L));
+        assertThat(requestCount.get(), is(1));
+    }
+
+    @Test
+    public void triggerIsTracedPhaseByPhase() {
+        final RingBufferTraceListener traces = new RingBufferTraceListener(64);
+        p.setTraceListener(traces);
+
+        p.trigger(Arrays.asList("a", "b"), "event", "data");
+
+        final List<Span> spans = traces.dump();
+        assertThat(kinds(spans), is(Arrays.asList(Kind.VALIDATE, Kind.SERIALISE, Kind.SERIALISE, Kind.SIGN, Kind.SEND, Kind.REQUEST)));
+
+        final Span request = spans.get(spans.size() - 1);
+        assertThat(request.getEndpoint(), is("/events"));
+        assertThat(request.getChannels(), is(2));
+        assertThat(request.getBodyBytes() > 0, is(true));
+        assertThat(request.getStatus(), is(Status.SUCCESS));
+        for (final Span span : spans) {
+            assertThat(span.getTraceId(), is(request.getTraceId()));
+            assertThat(span.getDuration() <= request.getDuration(), is(true));
+            if (span != request) {
+                assertThat(span.getParentId(), is(request.getSpanId()));
+            }
+        }
+    }
+
+    @Test
+    public void eachRetryIsTraced() {
+        failuresBeforeResponse = 1;
+        p.setRetryPolicy(fastRetries());
+        final RingBufferTraceListener traces = new RingBufferTraceListener(64);
+        p.setTraceListener(traces);
+
+        p.get("/channels");
+
+        final List<Span> spans = traces.dump();
+        assertThat(kinds(spans), is(Arrays.asList(Kind.SIGN, Kind.SEND, Kind.SIGN, Kind.SEND, Kind.REQUEST)));
+        assertThat(spans.get(1).getStatus(), is(Status.SERVER_ERROR));
+        assertThat(spans.get(3).getStatus(), is(Status.SUCCESS));
+        assertThat(spans.get(4).getEndpoint(), is("/channels"));
+    }
+
+    private static List<Kind> kinds(final List<Span> spans) {
+        final List<Kind> kinds = new ArrayList<>();
+        for (final Span span : spans) {
+            kinds.add(span.getKind());
+        }
+        return kinds;
+    }
+
+    @Test
+    public void channelQueriesPassOnTypedRecords() {
+        responseBody = "{\"channels\":{\"presence-a\":{\"user_count\":1},\"presence-b\":{\"user_count\":2}}}";
+
+        final List<ChannelInfo> channels = new ArrayList<>();
+        final Result result = p.getChannels("presence-", Collections.singletonList("user_count"), channels::add);
+
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(channels.size(), is(2));
+        assertThat(channels.get(1).getName(), is("presence-b"));
+        assertThat(channels.get(1).getUserCount(), is(2));
+    }
+
+    @Test
+    public void presenceUsersArePassedOn() {
+        responseBody = "{\"users\":[{\"id\":\"1\"},{\"id\":\"2\"}]}";
+
+        final List<String> users = new ArrayList<>();
+        p.getPresenceUsers("presence-room", users::add);
+
+        assertThat(users, is(Arrays.asList("1", "2")));
+    }
+
+    @Test
+    public void failedChannelQueriesPassNothingOn() {
+        responseStatus = 404;
+        responseBody = "Unknown channel";
+
+        final List<ChannelInfo> channels = new ArrayList<>();
+        final Result result = p.getChannelInfo("presence-room", null, channels::add);
+
+        assertThat(result.getStatus(), is(Status.NOT_FOUND));
+        assertThat(channels.isEmpty(), is(true));
+    }
+
+    @Test
+    public void channelQueriesAreAnsweredFromTheCache() {
+        responseBody = "{\"occupied\":true,\"user_count\":3}";
+        final QueryCache cache = new QueryCache(60000, 100);
+        p.setQueryCache(cache);
+
+        final List<ChannelInfo> channels = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            assertThat(p.getChannelInfo("presence-room", Collections.singletonList("user_count"), channels::add).getStatus(), is(Status.SUCCESS));
+        }
+        p.get("/channels/presence-room");
+
+        assertThat(requestCount.get(), is(2));
+        assertThat(channels.size(), is(3));
+        assertThat(channels.get(2).getUserCount(), is(3));
+        assertThat(cache.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void onlySuccessfulChannelQueriesAreCached() {
+        p.setQueryCache(new QueryCache(60000, 100));
+
+        responseStatus = 500;
+        p.get("/channels");
+        responseStatus = 200;
+        p.get("/channels");
+        p.get("/channels");
+        p.post("/channels", "{}");
+
+        assertThat(requestCount.get(), is(3));
+    }
+
+    private RetryPolicy fastRetries() {
+        final RetryPolicy retryPolicy = new RetryPolicy();
+        retryPolicy.setInitialBackoff(1);
+        return retryPolicy;
+    }
 }
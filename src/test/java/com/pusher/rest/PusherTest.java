@@ -162,6 +162,30 @@ public class PusherTest {
         p.trigger(batch);
     }
 
+    @Test
+    public void batchEventsEncodedInParallelKeepTheirOrder() throws IOException {
+        final List<Map<String, Object>> res = new ArrayList<Map<String, Object>>();
+        final List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int n = i;
+            res.add(new HashMap<String, Object>() {{
+                put("channel", "my-channel-" + n);
+                put("name", "event-name");
+                put("data", "{\"aString\":\"value" + n + "\",\"aNumber\":" + n + "}");
+            }});
+            batch.add(new Event("my-channel-" + n, "event-name", new MyPojo("value" + n, n)));
+        }
+
+        context.checking(new Expectations() {{
+            oneOf(httpClient).execute(
+                with(field("batch", res))
+            );
+        }});
+
+        p.setParallelBatchEncoding(true);
+        p.trigger(batch);
+    }
+
     @Test
     public void mapShouldBeASuitableObjectForData() throws IOException {
         context.checking(new Expectations() {{
@@ -0,0 +1,161 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.util.PusherNoHttp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class QueryCacheTest {
+
+    private long now = 0;
+    private final QueryCache cache = new QueryCache(1000, 3, () -> now);
+
+    @Test
+    public void successfulResultsAreReusedUntilTheyExpire() {
+        final CompletableFuture<Result> pending = new CompletableFuture<>();
+        assertThat(cache.lookup("/channels", pending) == null, is(true));
+        pending.complete(success("{}"));
+
+        now = millis(999);
+        assertThat(cache.lookup("/channels", new CompletableFuture<>()).join().getMessage(), is("{}"));
+
+        now = millis(1000);
+        assertThat(cache.lookup("/channels", new CompletableFuture<>()) == null, is(true));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void identicalQueriesInFlightAreCoalesced() {
+        final CompletableFuture<Result> pending = new CompletableFuture<>();
+        assertThat(cache.lookup("/channels/a", pending) == null, is(true));
+
+        final CompletableFuture<Result> waiting = cache.lookup("/channels/a", new CompletableFuture<>());
+        assertThat(waiting.isDone(), is(false));
+
+        pending.complete(success("a"));
+        assertThat(waiting.join().getMessage(), is("a"));
+        assertThat(cache.getCoalescedCount(), is(1L));
+    }
+
+    @Test
+    public void failuresAreNotCachedButAreShared() {
+        final CompletableFuture<Result> pending = new CompletableFuture<>();
+        cache.lookup("/channels/a", pending);
+        final CompletableFuture<Result> waiting = cache.lookup("/channels/a", new CompletableFuture<>());
+
+        pending.complete(Result.fromHttpCode(503, "down"));
+
+        assertThat(waiting.join().getStatus(), is(Status.SERVER_ERROR));
+        assertThat(cache.lookup("/channels/a", new CompletableFuture<>()) == null, is(true));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        for (int i = 0; i < 10; i++) {
+            final CompletableFuture<Result> pending = new CompletableFuture<>();
+            cache.lookup("/channels/" + i, pending);
+            pending.complete(success(String.valueOf(i)));
+        }
+
+        assertThat(cache.size(), is(3));
+        // The latest result is always kept
+        assertThat(cache.lookup("/channels/9", new CompletableFuture<>()).join().getMessage(), is("9"));
+    }
+
+    @Test
+    public void oldestEntriesAreEvictedFirst() {
+        for (int i = 0; i < 4; i++) {
+            now = millis(i);
+            final CompletableFuture<Result> pending = new CompletableFuture<>();
+            cache.lookup("/channels/" + i, pending);
+            pending.complete(success(String.valueOf(i)));
+        }
+
+        assertThat(cache.size(), is(3));
+        assertThat(cache.lookup("/channels/0", new CompletableFuture<>()) == null, is(true));
+        for (int i = 1; i < 4; i++) {
+            assertThat(cache.lookup("/channels/" + i, new CompletableFuture<>()).join().getMessage(), is(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreEvictedAsOthersAreAdded() {
+        final CompletableFuture<Result> first = new CompletableFuture<>();
+        cache.lookup("/channels/a", first);
+        first.complete(success("a"));
+
+        now = millis(1000);
+        final CompletableFuture<Result> second = new CompletableFuture<>();
+        cache.lookup("/channels/b", second);
+        second.complete(success("b"));
+
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void keysIgnoreParameterOrder() {
+        final Map<String, String> a = new HashMap<>();
+        a.put("info", "user_count");
+        a.put("filter_by_prefix", "presence-");
+        final Map<String, String> b = new HashMap<>();
+        b.put("filter_by_prefix", "presence-");
+        b.put("info", "user_count");
+
+        assertThat(QueryCache.key("/channels", a), is(QueryCache.key("/channels", b)));
+        assertThat(QueryCache.key("/channels", Collections.<String, String>emptyMap()), is("/channels"));
+    }
+
+    @Test
+    public void keysDistinguishParameterValuesContainingSeparators() {
+        final Map<String, String> two = new HashMap<>();
+        two.put("a", "1");
+        two.put("b", "2");
+
+        assertThat(QueryCache.key("/channels", two), is("/channels?a=1&b=2"));
+        assertThat(QueryCache.key("/channels", Collections.singletonMap("a", "1, b=2")), is("/channels?a=1%2C+b%3D2"));
+        assertThat(QueryCache.key("/channels", Collections.singletonMap("a", "1&b=2")), is("/channels?a=1%26b%3D2"));
+    }
+
+    @Test
+    public void onlyChannelQueriesAreCacheable() {
+        assertThat(QueryCache.isCacheable("/channels"), is(true));
+        assertThat(QueryCache.isCacheable("/channels/presence-a/users"), is(true));
+        assertThat(QueryCache.isCacheable("/channelsx"), is(false));
+        assertThat(QueryCache.isCacheable("/users/1/terminate_connections"), is(false));
+    }
+
+    @Test
+    public void clientsWhichCantShareResultsRejectTheCache() {
+        final PusherNoHttp pusher = new PusherNoHttp("00001", "278d425bdf160c739803", "7ad3773142a6692b25b8");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pusher.setQueryCache(cache));
+        pusher.setQueryCache(null);
+    }
+
+    @Test
+    public void settingsMustBePositive() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new QueryCache(0, 10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new QueryCache(1000, 0));
+    }
+
+    private static Result success(final String body) {
+        return Result.fromHttpCode(200, body);
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,113 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.pusher.rest.RateLimiter.Mode;
+import com.pusher.rest.data.Result.Status;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RateLimiterTest {
+
+    private long now = 0;
+    private final RateLimiter limiter = new RateLimiter(10, 5, () -> now);
+
+    @Test
+    public void burstIsAvailableImmediately() {
+        assertThat(limiter.reserve(3), is(0L));
+        assertThat(limiter.reserve(2), is(0L));
+    }
+
+    @Test
+    public void blockingWaitsForTheTokensNeeded() {
+        limiter.reserve(5);
+
+        assertThat(limiter.reserve(2), is(millis(200)));
+        // Queues behind the previous request
+        assertThat(limiter.reserve(1), is(millis(300)));
+    }
+
+    @Test
+    public void tokensAreRefilledAtTheRateUpToTheBurst() {
+        limiter.reserve(5);
+
+        now += millis(300);
+        assertThat(limiter.reserve(3), is(0L));
+
+        now += millis(10000);
+        assertThat(limiter.reserve(5), is(0L));
+        assertThat(limiter.reserve(1), is(millis(100)));
+    }
+
+    @Test
+    public void requestsLargerThanTheBurstWait() {
+        assertThat(limiter.reserve(10), is(millis(500)));
+    }
+
+    @Test
+    public void failFastRejectsWithoutTakingTokens() {
+        limiter.setMode(Mode.FAIL_FAST);
+        limiter.reserve(4);
+
+        assertThat(limiter.reserve(2), is(-1L));
+        assertThat(limiter.reserve(1), is(0L));
+    }
+
+    @Test
+    public void waitIsBoundedByTheMaximum() {
+        limiter.setMode(Mode.WAIT);
+        limiter.setMaxWait(250);
+        limiter.reserve(5);
+
+        assertThat(limiter.reserve(3), is(-1L));
+        assertThat(limiter.reserve(2), is(millis(200)));
+        assertThat(limiter.reserve(1), is(-1L));
+    }
+
+    @Test
+    public void quotaExceededHalvesTheRateAndDrainsTheBucket() {
+        limiter.record(Status.MESSAGE_QUOTA_EXCEEDED);
+
+        assertThat(limiter.getRate(), is(5.0));
+        assertThat(limiter.reserve(1), is(millis(200)));
+    }
+
+    @Test
+    public void rateRecoversWithSuccessfulRequests() {
+        limiter.record(Status.MESSAGE_QUOTA_EXCEEDED);
+        limiter.record(Status.MESSAGE_QUOTA_EXCEEDED);
+        assertThat(limiter.getRate(), is(2.5));
+
+        limiter.record(Status.SUCCESS);
+        assertThat(limiter.getRate(), is(3.0));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.record(Status.SUCCESS);
+        }
+        assertThat(limiter.getRate(), is(10.0));
+    }
+
+    @Test
+    public void rateDoesNotFallIndefinitely() {
+        for (int i = 0; i < 100; i++) {
+            limiter.record(Status.MESSAGE_QUOTA_EXCEEDED);
+        }
+
+        assertThat(limiter.getRate(), is(10.0 / 32));
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(10, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.setMaxWait(-1));
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
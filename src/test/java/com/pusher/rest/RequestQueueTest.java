@@ -0,0 +1,152 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.pusher.rest.RequestQueue.OverflowPolicy;
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RequestQueueTest {
+
+    private final List<CompletableFuture<Result>> sent = new ArrayList<>();
+
+    @Test
+    public void requestsBeyondTheLimitWaitForASlot() {
+        final RequestQueue queue = new RequestQueue(2, 10);
+
+        final CompletableFuture<Result> first = queue.submit(this::send);
+        queue.submit(this::send);
+        final CompletableFuture<Result> third = queue.submit(this::send);
+
+        assertThat(sent.size(), is(2));
+        assertThat(queue.getInFlight(), is(2));
+        assertThat(queue.getQueueDepth(), is(1));
+
+        succeed(0);
+        assertThat(first.join().getStatus(), is(Status.SUCCESS));
+        assertThat(sent.size(), is(3));
+        assertThat(queue.getInFlight(), is(2));
+        assertThat(queue.getQueueDepth(), is(0));
+
+        succeed(1);
+        succeed(2);
+        assertThat(third.join().getStatus(), is(Status.SUCCESS));
+        assertThat(queue.getInFlight(), is(0));
+    }
+
+    @Test
+    public void rejectCompletesNewRequestsWhenFull() {
+        final RequestQueue queue = new RequestQueue(1, 1);
+
+        queue.submit(this::send);
+        queue.submit(this::send);
+        final CompletableFuture<Result> rejected = queue.submit(this::send);
+
+        assertThat(rejected.join().getStatus(), is(Status.QUEUE_FULL));
+        assertThat(queue.getRejectedCount(), is(1L));
+        assertThat(sent.size(), is(1));
+    }
+
+    @Test
+    public void dropOldestCompletesTheLongestQueuedRequest() {
+        final RequestQueue queue = new RequestQueue(1, 2);
+        queue.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+
+        queue.submit(this::send);
+        final CompletableFuture<Result> oldest = queue.submit(this::send);
+        queue.submit(this::send);
+        final CompletableFuture<Result> newest = queue.submit(this::send);
+
+        assertThat(oldest.join().getStatus(), is(Status.QUEUE_FULL));
+        assertThat(newest.isDone(), is(false));
+        assertThat(queue.getDroppedCount(), is(1L));
+        assertThat(queue.getQueueDepth(), is(2));
+    }
+
+    @Test
+    public void blockWaitsForRoomInTheQueue() throws Exception {
+        final RequestQueue queue = new RequestQueue(1, 0);
+        queue.setOverflowPolicy(OverflowPolicy.BLOCK);
+        queue.submit(this::send);
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final CompletableFuture<Result> second = new CompletableFuture<>();
+        final Thread blocked = new Thread(() -> {
+            queue.submit(() -> second);
+            submitted.countDown();
+        });
+        blocked.start();
+
+        assertThat(submitted.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        succeed(0);
+        assertThat(submitted.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(queue.getInFlight(), is(1));
+    }
+
+    @Test
+    public void requestsCompletingImmediatelyDrainTheQueue() {
+        final RequestQueue queue = new RequestQueue(1, 100000);
+        queue.submit(this::send);
+
+        final List<CompletableFuture<Result>> results = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            results.add(queue.submit(() -> CompletableFuture.completedFuture(Result.fromHttpCode(200, ""))));
+        }
+
+        succeed(0);
+        assertThat(results.get(results.size() - 1).join().getStatus(), is(Status.SUCCESS));
+        assertThat(queue.getInFlight(), is(0));
+    }
+
+    @Test
+    public void failuresToSendReleaseTheSlot() {
+        final RequestQueue queue = new RequestQueue(1, 1);
+
+        final CompletableFuture<Result> failed = queue.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(failed.isCompletedExceptionally(), is(true));
+        assertThat(queue.getInFlight(), is(0));
+    }
+
+    @Test
+    public void queueWaitIsRecorded() throws Exception {
+        final RequestQueue queue = new RequestQueue(1, 1);
+        queue.submit(this::send);
+        queue.submit(this::send);
+
+        Thread.sleep(20);
+        succeed(0);
+
+        assertThat(queue.getMaxQueueWait() >= 20, is(true));
+        assertThat(queue.getAverageQueueWait() >= 20, is(true));
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RequestQueue(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RequestQueue(1, -1));
+    }
+
+    private CompletableFuture<Result> send() {
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+        sent.add(result);
+        return result;
+    }
+
+    private void succeed(final int request) {
+        sent.get(request).complete(Result.fromHttpCode(200, "{}"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.pusher.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.pusher.rest.data.Result;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RetryPolicyTest {
+
+    private static final Result SERVER_ERROR = Result.fromHttpCode(503, "");
+    private static final Result CLIENT_ERROR = Result.fromHttpCode(400, "");
+
+    private final RetryPolicy policy = new RetryPolicy();
+
+    @Test
+    public void onlyRetryableStatusesAreRetried() {
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), greaterThanOrEqualTo(0L));
+        assertThat(policy.retryDelay(CLIENT_ERROR, 0, 0), is(-1L));
+        assertThat(policy.retryDelay(Result.fromHttpCode(200, ""), 0, 0), is(-1L));
+    }
+
+    @Test
+    public void backoffDoublesUpToTheMaximum() {
+        policy.setJitter(0);
+        policy.setInitialBackoff(100);
+        policy.setMaxBackoff(1000);
+
+        assertThat(policy.backoff(0), is(100L));
+        assertThat(policy.backoff(1), is(200L));
+        assertThat(policy.backoff(3), is(800L));
+        assertThat(policy.backoff(4), is(1000L));
+        assertThat(policy.backoff(100), is(1000L));
+    }
+
+    @Test
+    public void jitterOnlyShortensTheBackoff() {
+        policy.setJitter(0.5);
+        policy.setInitialBackoff(100);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.backoff(0), allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(100L)));
+        }
+    }
+
+    @Test
+    public void retriesStopAtTheMaximum() {
+        policy.setMaxRetries(2);
+
+        assertThat(policy.retryDelay(SERVER_ERROR, 1, 0), greaterThanOrEqualTo(0L));
+        assertThat(policy.retryDelay(SERVER_ERROR, 2, 0), is(-1L));
+    }
+
+    @Test
+    public void retriesStopAtTheDeadline() {
+        policy.setJitter(0);
+        policy.setInitialBackoff(100);
+        policy.setDeadline(1000);
+
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 899), is(100L));
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 900), is(-1L));
+    }
+
+    @Test
+    public void retriesAreLimitedByTheBudget() {
+        policy.setRetryBudget(0.5, 2);
+
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), greaterThanOrEqualTo(0L));
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), greaterThanOrEqualTo(0L));
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), is(-1L));
+
+        // Two requests earn one more retry
+        policy.requestStarted();
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), is(-1L));
+        policy.requestStarted();
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void budgetDoesNotGrowPastItsCapacity() {
+        policy.setRetryBudget(1, 1);
+        for (int i = 0; i < 10; i++) {
+            policy.requestStarted();
+        }
+
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), greaterThanOrEqualTo(0L));
+        assertThat(policy.retryDelay(SERVER_ERROR, 0, 0), is(-1L));
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> policy.setMaxRetries(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> policy.setJitter(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> policy.setRetryBudget(-1, 1));
+    }
+}
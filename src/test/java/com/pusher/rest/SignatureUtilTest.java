@@ -3,11 +3,17 @@ package com.pusher.rest;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+
 import org.junit.jupiter.api.Test;
 
 public class SignatureUtilTest {
@@ -39,4 +45,46 @@ public class SignatureUtilTest {
         assertThat(toSign, containsString("a=v1&car=v2&cat=v3&zat=v4"));
     }
 
+    @Test
+    public void fastPathMatchesGeneralPath() {
+        final HmacSigner signer = new HmacSigner("3457a88be87f890dcd98");
+        final String body = "{\"name\":\"event\",\"data\":\"caf\u00e9\"}";
+
+        final URI fast = SignatureUtil.fastUri("POST", "https", "api-eu.pusher.com:8443", "/apps/123/events",
+                body.getBytes(StandardCharsets.UTF_8), "157a2f3df564323a4a73", signer, 1353088179L);
+        final URI general = SignatureUtil.uri("POST", "https", "api-eu.pusher.com:8443", "/apps/123/events",
+                body.getBytes(StandardCharsets.UTF_8), "157a2f3df564323a4a73", Collections.<String, String>emptyMap(), signer::sign, 1353088179L);
+
+        assertThat(fast.getScheme(), is(general.getScheme()));
+        assertThat(fast.getAuthority(), is(general.getAuthority()));
+        assertThat(fast.getRawPath(), is(general.getRawPath()));
+        assertThat(queryParams(fast), is(queryParams(general)));
+        assertThat(queryParams(fast).get("auth_timestamp"), is("1353088179"));
+    }
+
+    @Test
+    public void fastPathWithoutBodyOmitsMd5() {
+        final URI fast = SignatureUtil.fastUri("GET", "http", "api.pusherapp.com", "/apps/123/channels",
+                null, "157a2f3df564323a4a73", new HmacSigner("3457a88be87f890dcd98"), 1353088179L);
+
+        assertThat(queryParams(fast).containsKey("body_md5"), is(false));
+        assertThat(queryParams(fast).size(), is(4));
+    }
+
+    @Test
+    public void fastPathOnlyUsedWhenNoEscapingIsNeeded() {
+        assertThat(SignatureUtil.canUseFastPath("api.pusherapp.com", "/apps/123/channels/presence-a@b,c;d=e", "157a2f3df564323a4a73"), is(true));
+        assertThat(SignatureUtil.canUseFastPath("localhost:8080", "/apps/123/events", "key"), is(true));
+        assertThat(SignatureUtil.canUseFastPath("api.pusherapp.com", "/apps/123/channels/a b", "key"), is(false));
+        assertThat(SignatureUtil.canUseFastPath("api.pusherapp.com", "/apps/123/events", "key+"), is(false));
+        assertThat(SignatureUtil.canUseFastPath("::1", "/apps/123/events", "key"), is(false));
+    }
+
+    private static Map<String, String> queryParams(final URI uri) {
+        final Map<String, String> params = new HashMap<String, String>();
+        for (final NameValuePair pair : URLEncodedUtils.parse(uri, "UTF-8")) {
+            params.put(pair.getName(), pair.getValue());
+        }
+        return params;
+    }
 }
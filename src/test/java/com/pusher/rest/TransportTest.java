@@ -0,0 +1,193 @@
+package com.pusher.rest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.pusher.rest.crypto.CryptoUtil;
+import com.pusher.rest.data.EncryptedMessage;
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.transport.ApacheHttpTransport;
+import com.pusher.rest.transport.AsyncHttpClientTransport;
+import com.pusher.rest.transport.JdkHttpTransport;
+import com.pusher.rest.transport.Transport;
+import com.pusher.rest.transport.TransportRequest;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.impl.client.HttpClients;
+import org.asynchttpclient.Dsl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests which plug an in-memory transport into the clients
+ */
+public class TransportTest {
+
+    private final List<TransportRequest> requests = new ArrayList<>();
+    private Function<TransportRequest, CompletableFuture<Result>> responder =
+            request -> CompletableFuture.completedFuture(Result.fromHttpCode(200, "{}"));
+    private boolean closed = false;
+
+    private final Transport transport = new Transport() {
+        @Override
+        public CompletableFuture<Result> send(final TransportRequest request) {
+            requests.add(request);
+            return responder.apply(request);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    };
+
+    @Test
+    public void syncClientSendsSignedRequestsWithTheTransport() {
+        final Pusher p = new Pusher(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        p.setTransport(transport);
+
+        assertThat(p.trigger("my-channel", "event", "data").getStatus(), is(Status.SUCCESS));
+        assertThat(p.get("/channels").getStatus(), is(Status.SUCCESS));
+
+        final TransportRequest trigger = requests.get(0);
+        assertThat(trigger.getMethod(), is("POST"));
+        assertThat(trigger.getUri().getPath(), is("/apps/" + PusherTest.APP_ID + "/events"));
+        assertThat(trigger.getUri().getQuery(), containsString("auth_signature="));
+        assertThat(new String(trigger.getBody(), StandardCharsets.UTF_8),
+                is("{\"channels\":[\"my-channel\"],\"name\":\"event\",\"data\":\"\\\"data\\\"\"}"));
+
+        final TransportRequest query = requests.get(1);
+        assertThat(query.getMethod(), is("GET"));
+        assertThat(query.getUri().getPath(), is("/apps/" + PusherTest.APP_ID + "/channels"));
+        assertThat(query.getBody() == null, is(true));
+    }
+
+    @Test
+    public void asyncClientsSendWithTheTransport() throws Exception {
+        final PusherAsync async = new PusherAsync(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        async.setTransport(transport);
+        final PusherHttp2 http2 = new PusherHttp2(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        http2.setTransport(transport);
+
+        assertThat(async.trigger("my-channel", "event", "data").get().getStatus(), is(Status.SUCCESS));
+        assertThat(http2.get("/channels").get().getStatus(), is(Status.SUCCESS));
+        assertThat(requests.size(), is(2));
+    }
+
+    @Test
+    public void encryptedEventsAreSealedIntoTheBody() {
+        final Pusher p = new Pusher(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET, PusherTest.VALID_MASTER_KEY);
+        p.setTransport(transport);
+        final CryptoUtil crypto = new CryptoUtil(PusherTest.VALID_MASTER_KEY);
+
+        assertThat(p.trigger("private-encrypted-a", "event", Collections.singletonMap("n", "1")).getStatus(), is(Status.SUCCESS));
+        assertThat(p.trigger(Arrays.asList(new Event("private-encrypted-b", "event", "two"), new Event("c", "event", "three"))).getStatus(), is(Status.SUCCESS));
+
+        final JsonObject trigger = body(requests.get(0));
+        assertThat(crypto.decrypt("private-encrypted-a", encryptedData(trigger)), is("{\"n\":\"1\"}"));
+
+        final JsonObject batch = body(requests.get(1)).getAsJsonArray("batch").get(0).getAsJsonObject();
+        assertThat(crypto.decrypt("private-encrypted-b", encryptedData(batch)), is("\"two\""));
+    }
+
+    private static JsonObject body(final TransportRequest request) {
+        return JsonParser.parseString(new String(request.getBody(), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static EncryptedMessage encryptedData(final JsonObject event) {
+        return PusherAbstract.BODY_SERIALISER.fromJson(event.get("data").getAsString(), EncryptedMessage.class);
+    }
+
+    @Test
+    public void failuresToSendBecomeResults() {
+        final Pusher p = new Pusher(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        p.setTransport(transport);
+
+        responder = request -> failed(new ConnectException("Connection refused"));
+        assertThat(p.get("/channels").getStatus(), is(Status.NETWORK_ERROR));
+
+        responder = request -> failed(new IllegalStateException("broken"));
+        assertThat(p.get("/channels").getStatus(), is(Status.UNKNOWN_ERROR));
+
+        responder = request -> {
+            throw new IllegalStateException("broken");
+        };
+        final Result result = p.get("/channels");
+        assertThat(result.getStatus(), is(Status.UNKNOWN_ERROR));
+        assertThat(result.getMessage(), containsString("broken"));
+    }
+
+    @Test
+    public void transportIsClosedWithTheClient() throws Exception {
+        final Pusher p = new Pusher(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        p.setTransport(transport);
+
+        p.close();
+        assertThat(closed, is(true));
+    }
+
+    @Test
+    public void transportIsNotClosedWhenTheHttpClientIsReconfigured() throws Exception {
+        final PusherAsync p = new PusherAsync(PusherTest.APP_ID, PusherTest.KEY, PusherTest.SECRET);
+        p.setTransport(transport);
+
+        p.configureHttpClient(org.asynchttpclient.Dsl.config());
+        assertThat(closed, is(false));
+        p.close();
+    }
+
+    @Test
+    public void builtInTransportsSendTheRequestedMethod() throws Exception {
+        final List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        final HttpServer server = ServerBootstrap.bootstrap()
+            .registerHandler("/*", (httpRequest, httpResponse, httpContext) -> {
+                methods.add(httpRequest.getRequestLine().getMethod());
+                httpResponse.setStatusCode(200);
+            }).create();
+        server.start();
+
+        try {
+            final URI uri = URI.create("http://" + server.getInetAddress().getHostName() + ":" + server.getLocalPort() + "/test");
+
+            for (final Transport builtIn : Arrays.asList(
+                    new ApacheHttpTransport(HttpClients.createDefault()),
+                    new AsyncHttpClientTransport(Dsl.asyncHttpClient()),
+                    new JdkHttpTransport(HttpClient.newHttpClient()))) {
+                try {
+                    methods.clear();
+                    assertThat(builtIn.send(new TransportRequest("GET", uri, null)).get().getStatus(), is(Status.SUCCESS));
+                    assertThat(builtIn.send(new TransportRequest("POST", uri, null)).get().getStatus(), is(Status.SUCCESS));
+                    assertThat(builtIn.getClass().getSimpleName(), methods, is(Arrays.asList("GET", "POST")));
+
+                    Assertions.assertThrows(IllegalArgumentException.class, () -> builtIn.send(new TransportRequest("DELETE", uri, null)));
+                } finally {
+                    builtIn.close();
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static CompletableFuture<Result> failed(final Exception e) {
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+        return result;
+    }
+}
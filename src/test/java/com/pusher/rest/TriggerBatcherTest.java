@@ -0,0 +1,146 @@
+package com.pusher.rest;
+
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.Result;
+import com.pusher.rest.data.Result.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TriggerBatcherTest {
+
+    private final List<List<Event>> published = Collections.synchronizedList(new ArrayList<>());
+
+    private final TriggerBatcher batcher = new TriggerBatcher(batch -> {
+        published.add(batch);
+        return CompletableFuture.completedFuture(Result.fromHttpCode(200, "{}"));
+    });
+
+    @AfterEach
+    public void teardown() {
+        batcher.close();
+    }
+
+    @Test
+    public void fullBatchIsPublishedImmediately() throws Exception {
+        batcher.setMaxBatchSize(3);
+        batcher.setLinger(60000);
+
+        batcher.trigger("channel-1", "event", "one");
+        batcher.trigger("channel-2", "event", "two");
+        assertThat(published.size(), is(0));
+
+        final Result result = batcher.trigger("channel-3", "event", "three", "123.456").get(1, TimeUnit.SECONDS);
+
+        assertThat(result.getStatus(), is(Status.SUCCESS));
+        assertThat(published.size(), is(1));
+        assertThat(published.get(0).size(), is(3));
+        assertThat(published.get(0).get(0).getChannel(), is("channel-1"));
+        assertThat(published.get(0).get(2).getSocketId(), is("123.456"));
+        assertThat(batcher.getQueuedCount(), is(0));
+    }
+
+    @Test
+    public void partialBatchIsPublishedAfterLinger() throws Exception {
+        batcher.setLinger(10);
+
+        final CompletableFuture<Result> first = batcher.trigger("my-channel", "event", "one");
+        final CompletableFuture<Result> second = batcher.trigger("my-channel", "event", "two");
+
+        assertThat(first.get(1, TimeUnit.SECONDS).getStatus(), is(Status.SUCCESS));
+        assertThat(second.get(1, TimeUnit.SECONDS).getStatus(), is(Status.SUCCESS));
+        assertThat(published.size(), is(1));
+        assertThat(published.get(0).get(1).getData(), is("two"));
+    }
+
+    @Test
+    public void closePublishesQueuedEvents() throws Exception {
+        batcher.setLinger(60000);
+
+        final CompletableFuture<Result> result = batcher.trigger("my-channel", "event", "one");
+        batcher.close();
+
+        assertThat(result.get(1, TimeUnit.SECONDS).getStatus(), is(Status.SUCCESS));
+        assertThat(published.size(), is(1));
+        Assertions.assertThrows(IllegalStateException.class, () -> batcher.trigger("my-channel", "event", "two"));
+    }
+
+    @Test
+    public void batchIsNotPublishedUntilThePreviousBatchHasCompleted() throws Exception {
+        final List<CompletableFuture<Result>> calls = Collections.synchronizedList(new ArrayList<>());
+        final TriggerBatcher ordered = new TriggerBatcher(batch -> {
+            published.add(batch);
+            final CompletableFuture<Result> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        });
+        ordered.setMaxBatchSize(1);
+
+        final CompletableFuture<Result> first = ordered.trigger("my-channel", "event", "one");
+        final CompletableFuture<Result> second = ordered.trigger("my-channel", "event", "two");
+        final CompletableFuture<Result> third = ordered.trigger("my-channel", "event", "three");
+        assertThat(published.size(), is(1));
+
+        calls.get(0).complete(Result.fromHttpCode(200, "{}"));
+        assertThat(first.get(1, TimeUnit.SECONDS).getStatus(), is(Status.SUCCESS));
+        assertThat(second.isDone(), is(false));
+        assertThat(published.size(), is(2));
+
+        calls.get(1).completeExceptionally(new RuntimeException("failed"));
+        Assertions.assertThrows(ExecutionException.class, second::get);
+        assertThat(published.size(), is(3));
+
+        calls.get(2).complete(Result.fromHttpCode(200, "{}"));
+        assertThat(third.get(1, TimeUnit.SECONDS).getStatus(), is(Status.SUCCESS));
+        assertThat(published.get(0).get(0).getData(), is("one"));
+        assertThat(published.get(1).get(0).getData(), is("two"));
+        assertThat(published.get(2).get(0).getData(), is("three"));
+        ordered.close();
+    }
+
+    @Test
+    public void publisherFailureCompletesEveryCaller() {
+        final TriggerBatcher failing = new TriggerBatcher(batch -> {
+            throw PusherException.encryptionMasterKeyRequired();
+        });
+        failing.setMaxBatchSize(2);
+
+        final CompletableFuture<Result> first = failing.trigger("private-encrypted-a", "event", "one");
+        final CompletableFuture<Result> second = failing.trigger("private-encrypted-b", "event", "two");
+
+        Assertions.assertThrows(ExecutionException.class, first::get);
+        Assertions.assertThrows(ExecutionException.class, second::get);
+        failing.close();
+    }
+
+    @Test
+    public void invalidChannelIsRejectedBeforeQueueing() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> batcher.trigger("bad channel", "event", "data"));
+        assertThat(batcher.getQueuedCount(), is(0));
+    }
+
+    @Test
+    public void nullEventNameOrDataIsRejectedBeforeQueueing() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> batcher.trigger("my-channel", null, "data"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> batcher.trigger("my-channel", "event", null));
+        assertThat(batcher.getQueuedCount(), is(0));
+    }
+
+    @Test
+    public void nullExecutorIsRejected() throws Exception {
+        try (Pusher pusher = new Pusher("00001", "278d425bdf160c739803", "7ad3773142a6692b25b8")) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new TriggerBatcher(pusher, (Executor)null));
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.pusher.rest.crypto;
 
+import com.google.gson.Gson;
+import com.pusher.rest.crypto.nacl.SecretBox;
 import com.pusher.rest.data.EncryptedMessage;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashSet;
 
@@ -78,4 +81,83 @@ public class CryptoUtilTest {
 
         assertEquals("1O0FFr6NiG4d9D4A5bWBh3EG9Y/wfjzqw172LUXwVQ4", sharedKey);
     }
+
+    @Test
+    void channelKeysAreCached() {
+        final CryptoUtil cached = new CryptoUtil(base64EncodedEncryptionMasterKey);
+
+        final EncryptedMessage m = cached.encrypt(encryptedChannel, testData);
+        assertEquals(testMessage, cached.decrypt(encryptedChannel, m));
+        assertEquals("1O0FFr6NiG4d9D4A5bWBh3EG9Y/wfjzqw172LUXwVQ4", cached.generateBase64EncodedSharedSecret(encryptedChannel));
+
+        assertEquals(1, cached.getChannelKeyCacheMisses());
+        assertEquals(2, cached.getChannelKeyCacheHits());
+    }
+
+    @Test
+    void leastRecentlyUsedChannelKeyIsEvicted() {
+        final CryptoUtil cached = new CryptoUtil(base64EncodedEncryptionMasterKey);
+        cached.setChannelKeyCacheSize(2);
+
+        cached.encrypt("private-encrypted-a", testData);
+        cached.encrypt("private-encrypted-b", testData);
+        cached.encrypt("private-encrypted-a", testData);
+        cached.encrypt("private-encrypted-c", testData);  // evicts b
+        cached.encrypt("private-encrypted-a", testData);
+        cached.encrypt("private-encrypted-b", testData);
+
+        assertEquals(4, cached.getChannelKeyCacheMisses());
+        assertEquals(2, cached.getChannelKeyCacheHits());
+    }
+
+    @Test
+    void channelKeyCacheCanBeDisabled() {
+        final CryptoUtil uncached = new CryptoUtil(base64EncodedEncryptionMasterKey);
+        uncached.setChannelKeyCacheSize(0);
+
+        final EncryptedMessage m = uncached.encrypt(encryptedChannel, testData);
+        assertEquals(testMessage, uncached.decrypt(encryptedChannel, m));
+
+        assertEquals(2, uncached.getChannelKeyCacheMisses());
+        assertEquals(0, uncached.getChannelKeyCacheHits());
+        assertThrows(IllegalArgumentException.class, () -> uncached.setChannelKeyCacheSize(-1));
+    }
+
+    @Test
+    void encryptInPlaceUsesTheCallersBuffer() {
+        final byte[] buffer = new byte[SecretBox.MESSAGE_OFFSET + testData.length];
+        System.arraycopy(testData, 0, buffer, SecretBox.MESSAGE_OFFSET, testData.length);
+
+        final byte[] nonce = crypto.encryptInPlace(encryptedChannel, buffer, testData.length);
+
+        final int ciphertextLength = CryptoUtil.ciphertextLength(testData.length);
+        assertEquals(testData.length + 16, ciphertextLength);
+        final EncryptedMessage encryptedMessage = new EncryptedMessage(nonce, buffer, SecretBox.CIPHERTEXT_OFFSET, ciphertextLength);
+        assertEquals(testMessage, crypto.decrypt(encryptedChannel, encryptedMessage));
+    }
+
+    @Test
+    void encryptedMessageMatchesMapBasedSecretBox() {
+        final byte[] key = Base64.getDecoder().decode(crypto.generateBase64EncodedSharedSecret(encryptedChannel) + "=");
+        final EncryptedMessage encryptedMessage = crypto.encrypt(encryptedChannel, testData);
+
+        final byte[] opened = SecretBox.open(
+            key,
+            Base64.getDecoder().decode(encryptedMessage.getNonce()),
+            Base64.getDecoder().decode(encryptedMessage.getCiphertext())
+        );
+        assertArrayEquals(testData, opened);
+    }
+
+    @Test
+    void encryptedMessageSerialisesWithGson() {
+        final EncryptedMessage encryptedMessage = crypto.encrypt(encryptedChannel, testData);
+        final Gson gson = new Gson();
+
+        final EncryptedMessage roundTripped = gson.fromJson(gson.toJson(encryptedMessage), EncryptedMessage.class);
+
+        assertEquals(encryptedMessage.getNonce(), roundTripped.getNonce());
+        assertEquals(encryptedMessage.getCiphertext(), roundTripped.getCiphertext());
+        assertEquals(testMessage, crypto.decrypt(encryptedChannel, roundTripped));
+    }
 }
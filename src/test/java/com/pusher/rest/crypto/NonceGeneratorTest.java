@@ -0,0 +1,80 @@
+package com.pusher.rest.crypto;
+
+import com.pusher.rest.data.EncryptedMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NonceGeneratorTest {
+
+    private static final int NONCE_LENGTH = 24;
+
+    @Test
+    void perThreadSecureRandomNoncesAreDistinct() {
+        assertDistinct(new SecureRandomNonceGenerator(), 10000);
+    }
+
+    @Test
+    void sharedSecureRandomNoncesAreDistinct() {
+        assertDistinct(new SecureRandomNonceGenerator(new SecureRandom()), 10000);
+    }
+
+    @Test
+    void pooledNoncesAreDistinctEvenWhenThePoolRunsDry() {
+        try (PooledNonceGenerator pooled = new PooledNonceGenerator(16)) {
+            assertDistinct(pooled, 10000);
+        }
+    }
+
+    @Test
+    void pooledGeneratorFillsInTheBackground() throws InterruptedException {
+        try (PooledNonceGenerator pooled = new PooledNonceGenerator(16)) {
+            for (int i = 0; i < 100 && pooled.getPooledCount() < 16; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(16, pooled.getPooledCount());
+
+            pooled.nextNonce(new byte[NONCE_LENGTH]);
+            assertTrue(pooled.getPooledCount() <= 16);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new PooledNonceGenerator(0));
+    }
+
+    @Test
+    void cryptoUtilUsesTheConfiguredGenerator() {
+        final CryptoUtil crypto = new CryptoUtil("VGhlIDMyIGNoYXJzIGxvbmcgZW5jcnlwdGlvbiBrZXk=");
+        final byte[] message = "{\"message\": \"Hello, world!\"}".getBytes(StandardCharsets.UTF_8);
+
+        crypto.encrypt("private-encrypted-test", message);
+        crypto.setNonceGenerator(nonce -> {
+            for (int i = 0; i < nonce.length; i++) {
+                nonce[i] = (byte)i;
+            }
+        });
+        final EncryptedMessage encrypted = crypto.encrypt("private-encrypted-test", message);
+
+        final byte[] expectedNonce = new byte[NONCE_LENGTH];
+        for (int i = 0; i < NONCE_LENGTH; i++) {
+            expectedNonce[i] = (byte)i;
+        }
+        assertEquals(Base64.getEncoder().encodeToString(expectedNonce), encrypted.getNonce());
+        assertEquals("{\"message\": \"Hello, world!\"}", crypto.decrypt("private-encrypted-test", encrypted));
+    }
+
+    private static void assertDistinct(final NonceGenerator generator, final int count) {
+        final Set<String> seen = new HashSet<>();
+        final byte[] nonce = new byte[NONCE_LENGTH];
+        for (int i = 0; i < count; i++) {
+            generator.nextNonce(nonce);
+            seen.add(Base64.getEncoder().encodeToString(nonce));
+        }
+        assertEquals(count, seen.size());
+    }
+}
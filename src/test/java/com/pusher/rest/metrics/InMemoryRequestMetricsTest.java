@@ -0,0 +1,50 @@
+package com.pusher.rest.metrics;
+
+import com.pusher.rest.data.Result.Status;
+import com.pusher.rest.metrics.RequestMetrics.Phase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class InMemoryRequestMetricsTest {
+
+    private final InMemoryRequestMetrics metrics = new InMemoryRequestMetrics();
+
+    @Test
+    public void requestsAreRecordedByEndpointAndStatus() {
+        metrics.recordRequest("/events", Status.SUCCESS, 1000, 100);
+        metrics.recordRequest("/events", Status.SUCCESS, 3000, 50);
+        metrics.recordRequest("/events", Status.SERVER_ERROR, 2000, 70);
+        metrics.recordRequest("/channels", Status.SUCCESS, 500, 0);
+
+        assertThat(metrics.getCount("/events", Status.SUCCESS), is(2L));
+        assertThat(metrics.getPayloadBytes("/events", Status.SUCCESS), is(150L));
+        assertThat(metrics.getLatency("/events", Status.SUCCESS).getMax(), is(3000L));
+        assertThat(metrics.getCount("/events", Status.SERVER_ERROR), is(1L));
+        assertThat(metrics.getCount("/channels", Status.SUCCESS), is(1L));
+        assertThat(metrics.getEndpoints().size(), is(2));
+    }
+
+    @Test
+    public void phaseTimesAreTotalled() {
+        metrics.recordTime("/batch_events", Phase.SERIALISE, 100);
+        metrics.recordTime("/batch_events", Phase.SERIALISE, 200);
+        metrics.recordTime("/batch_events", Phase.SIGN, 50);
+
+        assertThat(metrics.getTime("/batch_events", Phase.SERIALISE), is(300L));
+        assertThat(metrics.getTime("/batch_events", Phase.SIGN), is(50L));
+        assertThat(metrics.getTime("/batch_events", Phase.ENCRYPT), is(0L));
+        assertThat(metrics.getEndpoints(), is(Collections.singleton("/batch_events")));
+    }
+
+    @Test
+    public void unknownEndpointsReportNothing() {
+        assertThat(metrics.getCount("/events", Status.SUCCESS), is(0L));
+        assertThat(metrics.getPayloadBytes("/events", Status.SUCCESS), is(0L));
+        assertThat(metrics.getLatency("/events", Status.SUCCESS).getCount(), is(0L));
+        assertThat(metrics.getTime("/events", Phase.SIGN), is(0L));
+    }
+}
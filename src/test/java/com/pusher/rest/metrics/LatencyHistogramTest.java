@@ -0,0 +1,77 @@
+package com.pusher.rest.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getMean(), is(0.0));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long v = 1; v <= 50; v++) {
+            histogram.record(v);
+        }
+
+        assertThat(histogram.getCount(), is(50L));
+        assertThat(histogram.getValueAtPercentile(50), is(25L));
+        assertThat(histogram.getValueAtPercentile(100), is(50L));
+        assertThat(histogram.getMean(), is(25.5));
+    }
+
+    @Test
+    public void largeValuesAreWithinThreePercent() {
+        final long[] values = {1_000, 123_456, 5_000_000, 987_654_321, 60_000_000_000L};
+        for (final long v : values) {
+            final LatencyHistogram h = new LatencyHistogram();
+            h.record(v);
+            h.record(v * 2);
+
+            final long reported = h.getValueAtPercentile(50);
+            assertThat(reported >= v && reported <= v * 1.03, is(true));
+        }
+    }
+
+    @Test
+    public void percentilesFollowTheDistribution() {
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1_000_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(100_000_000);
+        }
+
+        assertThat(histogram.getValueAtPercentile(99) < 1_050_000, is(true));
+        assertThat(histogram.getValueAtPercentile(99.9) >= 100_000_000, is(true));
+        assertThat(histogram.getMax(), is(100_000_000L));
+    }
+
+    @Test
+    public void bucketsCoverTheWholeRange() {
+        assertThat(LatencyHistogram.index(0), is(0));
+        assertThat(LatencyHistogram.index(63), is(63));
+        assertThat(LatencyHistogram.index(64), is(64));
+        assertThat(LatencyHistogram.highestEquivalentValue(LatencyHistogram.index(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertThat(histogram.getCount(), is(2L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+    }
+
+    @Test
+    public void percentileMustBeInRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+}
@@ -0,0 +1,72 @@
+package com.pusher.rest.tracing;
+
+import com.pusher.rest.tracing.Span.Kind;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RingBufferTraceListenerTest {
+
+    @Test
+    public void spansAreDumpedOldestFirst() {
+        final RingBufferTraceListener listener = new RingBufferTraceListener(8);
+        for (int i = 1; i <= 3; i++) {
+            listener.onSpan(span(i));
+        }
+
+        assertThat(traceIds(listener.dump()), is(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void oldestSpansAreOverwrittenOnceFull() {
+        final RingBufferTraceListener listener = new RingBufferTraceListener(3);  // rounded up to 4
+        for (int i = 1; i <= 10; i++) {
+            listener.onSpan(span(i));
+        }
+
+        assertThat(traceIds(listener.dump()), is(List.of(7L, 8L, 9L, 10L)));
+        assertThat(listener.getRecordedCount(), is(10L));
+    }
+
+    @Test
+    public void concurrentSpansAreAllRecorded() throws Exception {
+        final RingBufferTraceListener listener = new RingBufferTraceListener(4096);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    listener.onSpan(span(i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(listener.dump().size(), is(4000));
+    }
+
+    @Test
+    public void capacityMustBePositive() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RingBufferTraceListener(0));
+    }
+
+    private static Span span(final long traceId) {
+        return new Span(traceId, 1, 0, Kind.REQUEST, "/events", 0, 1000, 1, 10, null);
+    }
+
+    private static List<Long> traceIds(final List<Span> spans) {
+        final List<Long> ids = new ArrayList<>();
+        for (final Span span : spans) {
+            ids.add(span.getTraceId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,96 @@
+package com.pusher.rest.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PrerequisitesTest {
+
+    // The patterns the validation previously used
+    private static final Pattern VALID_CHANNEL = Pattern.compile("\\A[-a-zA-Z0-9_=@,.;]+\\z");
+    private static final Pattern VALID_SOCKET_ID = Pattern.compile("\\A\\d+\\.\\d+\\z");
+
+    @AfterEach
+    public void disableCache() {
+        Prerequisites.setValidChannelCacheSize(0);
+    }
+
+    @Test
+    public void channelValidationMatchesThePattern() {
+        for (final String channel : Arrays.asList("my-channel", "private-encrypted-a", "presence-room@1,2;3=4.5_6",
+                "", " ", "a b", "a:b", "a/b", "ä", "a\u0000", "-", "#")) {
+            assertThat(channel, isValidChannel(channel), is(VALID_CHANNEL.matcher(channel).matches()));
+        }
+    }
+
+    @Test
+    public void socketIdValidationMatchesThePattern() {
+        for (final String socketId : Arrays.asList("123.456", "1.2", "0.0", "", ".", "1.", ".1", "1", "1.2.3", "a.1",
+                "1.a", " 1.2", "1.2 ", "١.٢")) {
+            assertThat(socketId, isValidSocketId(socketId), is(VALID_SOCKET_ID.matcher(socketId).matches()));
+        }
+    }
+
+    @Test
+    public void randomInputsMatchThePatterns() {
+        final Random random = new Random(42);
+        final String alphabet = "az09-_=@,.;: /#ä١";
+        for (int n = 0; n < 10000; n++) {
+            final StringBuilder s = new StringBuilder();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            final String input = s.toString();
+
+            assertThat(input, isValidChannel(input), is(VALID_CHANNEL.matcher(input).matches()));
+            assertThat(input, isValidSocketId(input), is(VALID_SOCKET_ID.matcher(input).matches()));
+        }
+    }
+
+    @Test
+    public void cachedChannelsAreStillValidated() {
+        Prerequisites.setValidChannelCacheSize(4);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(isValidChannel("my-channel"), is(true));
+            assertThat(isValidChannel("my channel"), is(false));
+            assertThat(isValidChannel("channel-" + i), is(true));
+        }
+    }
+
+    @Test
+    public void nullChannelIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Prerequisites.isValidChannel(null));
+        Prerequisites.isValidSocketId(null);
+    }
+
+    @Test
+    public void cacheSizeMustBeInRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Prerequisites.setValidChannelCacheSize(-1));
+    }
+
+    private static boolean isValidChannel(final String channel) {
+        try {
+            Prerequisites.isValidChannel(channel);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isValidSocketId(final String socketId) {
+        try {
+            Prerequisites.isValidSocketId(socketId);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+}